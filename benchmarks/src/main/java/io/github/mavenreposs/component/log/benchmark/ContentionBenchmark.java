@@ -0,0 +1,88 @@
+package io.github.mavenreposs.component.log.benchmark;
+
+import io.github.mavenreposs.component.log.LogPrinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个线程同时输出带边框的日志，比较同步输出和异步输出在竞争下的吞吐量，
+ * 以及线程分散到多个独立的日志打印机时的吞吐量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    @Param({"1", "4"})
+    public int printerCount;
+
+    private LogPrinter[] printers;
+
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        printers = new LogPrinter[printerCount];
+        for (int i = 0; i < printerCount; i++) {
+            printers[i] = new LogPrinter();
+            printers[i].getLogConfig().clearLoggers().addLogger(new NoopLogger()).methodCount(1).async(async);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (LogPrinter printer : printers) {
+            printer.flush();
+        }
+    }
+
+    /**
+     * 每个线程固定使用其中一个日志打印机
+     */
+    @State(Scope.Thread)
+    public static class ThreadPrinter {
+
+        LogPrinter printer;
+
+        @Setup
+        public void setUp(ContentionBenchmark benchmark) {
+            printer = benchmark.printers[benchmark.threadIndex.getAndIncrement() % benchmark.printers.length];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void threads1(ThreadPrinter threadPrinter) {
+        log(threadPrinter.printer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void threads4(ThreadPrinter threadPrinter) {
+        log(threadPrinter.printer);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void threads16(ThreadPrinter threadPrinter) {
+        log(threadPrinter.printer);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void threads64(ThreadPrinter threadPrinter) {
+        log(threadPrinter.printer);
+    }
+
+    private static void log(LogPrinter printer) {
+        printer.append("request id %s", 1001).info("request finished, cost %sms", 12);
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.mavenreposs.component.log.benchmark;
+
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.LogLevel;
+import io.github.mavenreposs.component.log.logger.FileLogger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件输出的吞吐量，直接写入渲染好的日志，不包含渲染开销
+ * <p>
+ * 日志写入工作目录下的storages/RCLog/BENCHMARK目录
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileLoggerBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+
+    private FileLogger fileLogger;
+
+    private LogBlock singleLine;
+
+    private LogBlock bordered;
+
+    @Setup
+    public void setUp() {
+        fileLogger = new FileLogger();
+        singleLine = new LogBlock();
+        singleLine.newLine().append("user RCLog logged in, cost 12ms");
+        bordered = new LogBlock();
+        bordered.newLine().append("╔══════════════════════════════════════════");
+        bordered.newLine().append("║ RenderBenchmark.infoBordered  (RenderBenchmark.java:42)");
+        bordered.newLine().append("╟──────────────────────────────────────────");
+        bordered.newLine().append("║ user RCLog logged in");
+        bordered.newLine().append("║ cost 12ms");
+        bordered.newLine().append("╚══════════════════════════════════════════");
+    }
+
+    @TearDown
+    public void tearDown() {
+        fileLogger.close();
+    }
+
+    @Benchmark
+    public void singleLine() {
+        fileLogger.logBlock(LogLevel.INFO, TAG, singleLine);
+    }
+
+    @Benchmark
+    public void bordered() {
+        fileLogger.logBlock(LogLevel.INFO, TAG, bordered);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void borderedThreads4() {
+        fileLogger.logBlock(LogLevel.INFO, TAG, bordered);
+    }
+}
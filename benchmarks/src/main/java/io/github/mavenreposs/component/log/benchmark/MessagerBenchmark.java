@@ -0,0 +1,53 @@
+package io.github.mavenreposs.component.log.benchmark;
+
+import io.github.mavenreposs.component.log.LogPrinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Json、Xml、对象格式化的开销，包括边框渲染，输出到{@link NoopLogger}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessagerBenchmark {
+
+    @Param({Payloads.SMALL, Payloads.LARGE})
+    public String size;
+
+    private LogPrinter printer;
+
+    private String json;
+
+    private String xml;
+
+    private Object object;
+
+    @Setup
+    public void setUp() {
+        printer = new LogPrinter();
+        printer.getLogConfig().clearLoggers().addLogger(new NoopLogger()).methodCount(1);
+        json = Payloads.json(size);
+        xml = Payloads.xml(size);
+        object = Payloads.object(size);
+    }
+
+    @Benchmark
+    public void json() {
+        printer.json(json);
+    }
+
+    @Benchmark
+    public void xml() {
+        printer.xml(xml);
+    }
+
+    @Benchmark
+    public void object() {
+        printer.object(object);
+    }
+}
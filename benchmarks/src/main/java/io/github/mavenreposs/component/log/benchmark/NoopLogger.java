@@ -0,0 +1,78 @@
+package io.github.mavenreposs.component.log.benchmark;
+
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+
+/**
+ * 不做任何输出的日志输出工具，用来把渲染开销和输出开销分开测量
+ * <p>
+ * 只记录最后一次收到的日志，避免渲染结果被JIT当作无用代码消除。记录按线程分开保存，
+ * 多线程测试时各线程不会争抢同一个字段，也不会因为共享缓存行影响测量结果
+ * </p>
+ */
+public class NoopLogger implements LoggerInterface {
+
+    private final ThreadLocal<Received> received = ThreadLocal.withInitial(Received::new);
+
+    /**
+     * @return 当前线程最后一次收到的日志
+     */
+    public Object getLast() {
+        return received.get().last;
+    }
+
+    /**
+     * @return 当前线程收到的日志数量
+     */
+    public long getCount() {
+        return received.get().count;
+    }
+
+    @Override
+    public void verbose(String tag, String message) {
+        consume(message);
+    }
+
+    @Override
+    public void debug(String tag, String message) {
+        consume(message);
+    }
+
+    @Override
+    public void info(String tag, String message) {
+        consume(message);
+    }
+
+    @Override
+    public void warn(String tag, String message) {
+        consume(message);
+    }
+
+    @Override
+    public void error(String tag, String message) {
+        consume(message);
+    }
+
+    @Override
+    public void assertError(String tag, String message) {
+        consume(message);
+    }
+
+    @Override
+    public void logBlock(int level, String tag, LogBlock block) {
+        consume(block);
+    }
+
+    private void consume(Object message) {
+        Received current = received.get();
+        current.last = message;
+        current.count++;
+    }
+
+    private static final class Received {
+
+        private Object last;
+
+        private long count;
+    }
+}
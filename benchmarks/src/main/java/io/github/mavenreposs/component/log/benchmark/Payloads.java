@@ -0,0 +1,73 @@
+package io.github.mavenreposs.component.log.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试使用的消息内容，small约100字节，large约100KB
+ */
+final class Payloads {
+
+    static final String SMALL = "small";
+
+    static final String LARGE = "large";
+
+    private Payloads() {
+    }
+
+    static String json(String size) {
+        int count = LARGE.equals(size) ? 1000 : 1;
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(i)
+                    .append(",\"name\":\"user ").append(i)
+                    .append("\",\"active\":").append(i % 2 == 0)
+                    .append(",\"score\":").append(i * 1.5)
+                    .append(",\"tags\":[\"a\",\"b\"]}");
+        }
+        return builder.append(']').toString();
+    }
+
+    static String xml(String size) {
+        int count = LARGE.equals(size) ? 1000 : 1;
+        StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><users>");
+        for (int i = 0; i < count; i++) {
+            builder.append("<user id=\"").append(i).append("\"><name>user ").append(i)
+                    .append("</name><active>").append(i % 2 == 0).append("</active></user>");
+        }
+        return builder.append("</users>").toString();
+    }
+
+    static Object object(String size) {
+        int count = LARGE.equals(size) ? 1000 : 1;
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User(i));
+        }
+        return users;
+    }
+
+    static class User {
+
+        private final int id;
+
+        private final String name;
+
+        private final boolean active;
+
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+        User(int id) {
+            this.id = id;
+            this.name = "user " + id;
+            this.active = id % 2 == 0;
+            attributes.put("score", id * 1.5);
+            attributes.put("tags", new String[]{"a", "b"});
+        }
+    }
+}
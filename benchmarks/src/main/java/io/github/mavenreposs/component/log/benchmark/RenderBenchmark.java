@@ -0,0 +1,55 @@
+package io.github.mavenreposs.component.log.benchmark;
+
+import io.github.mavenreposs.component.log.LogPrinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程下各种日志格式的渲染开销，输出到{@link NoopLogger}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    @Param({"0", "1", "5"})
+    public int methodCount;
+
+    private LogPrinter printer;
+
+    private IllegalStateException exception;
+
+    @Setup
+    public void setUp() {
+        printer = new LogPrinter();
+        printer.getLogConfig().clearLoggers().addLogger(new NoopLogger()).methodCount(methodCount);
+        exception = new IllegalStateException("benchmark");
+    }
+
+    @Benchmark
+    public void infoSingleLine() {
+        printer.method(0).info("user %s logged in, cost %sms", "RCLog", 12);
+    }
+
+    @Benchmark
+    public void infoBordered() {
+        printer.info("user %s logged in\ncost %sms", "RCLog", 12);
+    }
+
+    @Benchmark
+    public void appendChain() {
+        printer.append("request id %s", 1001)
+                .append("path %s", "/api/users")
+                .append("status %s", 200)
+                .info("request finished");
+    }
+
+    @Benchmark
+    public void errorThrowable() {
+        printer.error(exception, "request failed");
+    }
+}
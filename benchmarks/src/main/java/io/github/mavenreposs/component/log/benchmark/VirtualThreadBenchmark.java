@@ -0,0 +1,80 @@
+package io.github.mavenreposs.component.log.benchmark;
+
+import io.github.mavenreposs.component.log.LogPrinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每条日志在一个新的虚拟线程上输出，比较开启和关闭虚拟线程适配时的吞吐量，
+ * 分为不设置内容的日志和设置了Tag、拼接内容的日志；需要Java 21及以上
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    //每次调用提交的任务数量
+    private static final int TASKS = 10_000;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    private LogPrinter printer;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("VirtualThreadBenchmark requires Java 21 or later", e);
+        }
+        printer = new LogPrinter();
+        printer.getLogConfig().clearLoggers().addLogger(new NoopLogger()).methodCount(0)
+                .virtualThreads(virtualThreads).async(async);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        printer.flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void plain() throws InterruptedException {
+        run(() -> printer.info("request finished, cost %sms", 12));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void tagged() throws InterruptedException {
+        run(() -> printer.tag("ORDER").append("request id %s", 1001).info("request finished, cost %sms", 12));
+    }
+
+    private void run(Runnable task) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
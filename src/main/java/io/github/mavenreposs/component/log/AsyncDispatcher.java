@@ -0,0 +1,191 @@
+package io.github.mavenreposs.component.log;
+
+import io.github.mavenreposs.component.log.logger.ShutdownHooks;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 异步日志分发器
+ * <p>
+ * 调用线程只负责把{@link LogEvent}放入环形队列后立即返回，由唯一的消费线程依次渲染并输出，
+ * 因此每一条带边框的日志块都是完整且有序的。
+ * </p>
+ */
+final class AsyncDispatcher {
+
+    //消费线程空闲时的等待时间
+    private static final long IDLE_PARK_NANOS = 100_000L;
+
+    //生产者等待队列空位的时间
+    private static final long FULL_PARK_NANOS = 10_000L;
+
+    private static final int SPIN_TRIES = 64;
+
+    //运行中的分发器，进程退出时在关闭输出工具之前全部停止
+    private static final Set<AsyncDispatcher> DISPATCHERS = ConcurrentHashMap.newKeySet();
+
+    private static boolean drainRegistered;
+
+    private final RingBuffer<LogEvent> ringBuffer;
+
+    private final Consumer<LogEvent> handler;
+
+    private final boolean dropWhenFull;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    //已经提示过的丢弃数量，只有消费线程写入
+    private volatile long reportedDropped;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    //已经输出完成的日志数量，只有消费线程写入
+    private volatile long completedCount;
+
+    AsyncDispatcher(int capacity, boolean dropWhenFull, Consumer<LogEvent> handler) {
+        this.ringBuffer = new RingBuffer<>(capacity);
+        this.dropWhenFull = dropWhenFull;
+        this.handler = handler;
+        this.worker = new Thread(this::drainLoop, "RCLog-AsyncDispatcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        DISPATCHERS.add(this);
+        registerDrain();
+    }
+
+    /**
+     * 与输出工具共用一个关闭钩子，先输出队列中剩余的日志，再刷新和关闭输出工具
+     */
+    private static synchronized void registerDrain() {
+        if (!drainRegistered) {
+            ShutdownHooks.registerDrain(() -> {
+                for (AsyncDispatcher dispatcher : DISPATCHERS) {
+                    dispatcher.shutdown();
+                }
+            });
+            drainRegistered = true;
+        }
+    }
+
+    /**
+     * 发布一条日志
+     *
+     * @param event 日志
+     * @return 日志被丢弃时返回false
+     */
+    boolean publish(LogEvent event) {
+        if (ringBuffer.offer(event)) {
+            return true;
+        }
+        //输出工具在消费线程上打印日志时不能等待自己腾出空位，直接丢弃
+        if (dropWhenFull || !running || Thread.currentThread() == worker) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        while (!ringBuffer.offer(event)) {
+            if (!running) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * 等待队列中已发布的日志和已经丢弃的日志的提示全部输出，
+     * 包括输出工具在消费线程上输出这些日志时又发布的日志
+     */
+    void flush() {
+        if (Thread.currentThread() == worker) {
+            return;
+        }
+        long target;
+        long dropped;
+        do {
+            target = ringBuffer.producedCount();
+            dropped = droppedCount.get();
+            while (running && (completedCount < target || reportedDropped < dropped)) {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        } while (running && (ringBuffer.producedCount() != target || droppedCount.get() != dropped));
+    }
+
+    /**
+     * 停止消费线程，并输出队列中剩余的日志
+     */
+    void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        DISPATCHERS.remove(this);
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void drainLoop() {
+        try {
+            int idle = 0;
+            while (running) {
+                LogEvent event = ringBuffer.poll();
+                if (event != null) {
+                    idle = 0;
+                    dispatch(event);
+                    completedCount++;
+                } else if (reportDropped()) {
+                    idle = 0;
+                } else if (++idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            LogEvent event;
+            while ((event = ringBuffer.poll()) != null) {
+                dispatch(event);
+                completedCount++;
+            }
+        } finally {
+            //消费线程意外退出时不再接收日志，等待队列空位和等待输出完成的线程随之返回
+            running = false;
+            DISPATCHERS.remove(this);
+        }
+    }
+
+    /**
+     * 队列空闲时补一条告警，说明因队列已满丢弃了多少条日志
+     */
+    private boolean reportDropped() {
+        long dropped = droppedCount.get();
+        if (dropped == reportedDropped) {
+            return false;
+        }
+        String message = "RCLog async queue is full, " + (dropped - reportedDropped) + " log records were dropped";
+        dispatch(new LogEvent(LogLevel.WARN, LogConfig.DEFAULT_TAG, message, null, null, false));
+        reportedDropped = dropped;
+        return true;
+    }
+
+    private void dispatch(LogEvent event) {
+        try {
+            handler.accept(event);
+        } catch (Throwable e) {
+            //输出失败不能让消费线程退出，包括输出工具抛出的Error
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 重复日志合并
+ * <p>
+ * 与上一条日志的Tag、级别和内容哈希都相同时只计数，不再渲染和输出。
+ * 出现不同的日志、同一段重复持续超过最长时间或者调用flush时，输出一条汇总日志说明重复的次数；
+ * 重复持续到最长时间后即使没有新的日志，也由后台定时任务输出汇总。
+ * 只比较哈希值，不逐字比较完整内容。
+ * </p>
+ * <p>
+ * 一段重复结束时计数通过CAS置为{@link #CLOSED}，之后到达的重复不会再计入这段重复，而是计入下一段，
+ * 多个线程同时输出时重复次数不会丢失。
+ * </p>
+ */
+final class DuplicateFilter {
+
+    //已经结束的一段重复的计数
+    private static final long CLOSED = -1;
+
+    private static ScheduledExecutorService timer;
+
+    private final AtomicReference<Run> lastRun = new AtomicReference<>();
+
+    //接收到期的重复汇总
+    private final Consumer<Summary> expiredReporter;
+
+    /**
+     * @param expiredReporter 在后台线程上接收持续到最长时间的重复汇总
+     */
+    DuplicateFilter(Consumer<Summary> expiredReporter) {
+        this.expiredReporter = expiredReporter;
+    }
+
+    /**
+     * @param logType       日志级别
+     * @param tag           不含线程信息的Tag
+     * @param message       消息
+     * @param appendMsgList 拼接的内容
+     * @param now           当前时间（毫秒）
+     * @param maxMillis     同一段重复最长合并的时间
+     * @return 与上一条日志重复时返回null，否则返回上一段重复的汇总，没有重复时返回{@link Summary#NONE}
+     */
+    Summary filter(int logType, String tag, String message, List<String> appendMsgList, long now, long maxMillis) {
+        int hash = message.hashCode();
+        if (appendMsgList != null) {
+            for (String appendMsg : appendMsgList) {
+                hash = 31 * hash + appendMsg.hashCode();
+            }
+        }
+        while (true) {
+            Run run = lastRun.get();
+            if (run != null && run.logType == logType && run.hash == hash && run.tag.equals(tag)
+                    && now - run.start < maxMillis) {
+                long repeated = run.increment();
+                if (repeated == 1) {
+                    scheduleExpiry(run, run.start + maxMillis - now);
+                }
+                if (repeated > 0) {
+                    return null;
+                }
+                //这段重复刚被其它线程结束，按新的一段重新判断
+                continue;
+            }
+            if (lastRun.compareAndSet(run, new Run(logType, tag, hash, now))) {
+                return summaryOf(run);
+            }
+        }
+    }
+
+    /**
+     * 结束当前这段重复
+     *
+     * @return 当前这段重复的汇总
+     */
+    Summary flush() {
+        return summaryOf(lastRun.getAndSet(null));
+    }
+
+    /**
+     * 结束一段重复，之后的重复不再计入这段
+     */
+    private static Summary summaryOf(Run run) {
+        if (run == null) {
+            return Summary.NONE;
+        }
+        long repeated = run.repeated.getAndSet(CLOSED);
+        return repeated > 0 ? new Summary(run.logType, run.tag, repeated) : Summary.NONE;
+    }
+
+    /**
+     * 一段重复持续到最长时间仍然是最后一条日志时，由后台线程结束并输出汇总
+     */
+    private void scheduleExpiry(Run run, long delayMillis) {
+        getTimer().schedule(() -> {
+            if (lastRun.compareAndSet(run, null)) {
+                Summary summary = summaryOf(run);
+                if (summary.repeated > 0) {
+                    expiredReporter.accept(summary);
+                }
+            }
+        }, Math.max(delayMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "RCLog-DuplicateTimer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+
+    private static final class Run {
+
+        private final int logType;
+
+        private final String tag;
+
+        private final int hash;
+
+        private final long start;
+
+        private final AtomicLong repeated = new AtomicLong();
+
+        Run(int logType, String tag, int hash, long start) {
+            this.logType = logType;
+            this.tag = tag;
+            this.hash = hash;
+            this.start = start;
+        }
+
+        /**
+         * @return 计入后的重复次数，这段重复已经结束时返回0
+         */
+        long increment() {
+            while (true) {
+                long current = repeated.get();
+                if (current == CLOSED) {
+                    return 0;
+                }
+                if (repeated.compareAndSet(current, current + 1)) {
+                    return current + 1;
+                }
+            }
+        }
+    }
+
+    static final class Summary {
+
+        static final Summary NONE = new Summary(0, null, 0);
+
+        final int logType;
+
+        final String tag;
+
+        final long repeated;
+
+        Summary(int logType, String tag, long repeated) {
+            this.logType = logType;
+            this.tag = tag;
+            this.repeated = repeated;
+        }
+
+        String getMessage() {
+            return "Last message repeated " + repeated + " times";
+        }
+    }
+}
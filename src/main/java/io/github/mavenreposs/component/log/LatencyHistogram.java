@@ -0,0 +1,83 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图
+ * <p>
+ * 按2的幂划分桶，每个桶使用分段计数的LongAdder，多线程同时记录时没有竞争；
+ * 百分位按桶的上界估算，误差在2倍以内。
+ * </p>
+ */
+final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos 耗时（纳秒）
+     */
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        //第i个桶包含[2^(i-1), 2^i)，0单独在第0个桶
+        buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * 以name为前缀输出次数、平均值、p50、p90、p99和最大值
+     */
+    void snapshot(String name, Map<String, Long> target) {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            sum += counts[i];
+        }
+        target.put(name + ".count", sum);
+        target.put(name + ".mean", sum == 0 ? 0 : total.sum() / sum);
+        target.put(name + ".p50", percentile(counts, sum, 0.50));
+        target.put(name + ".p90", percentile(counts, sum, 0.90));
+        target.put(name + ".p99", percentile(counts, sum, 0.99));
+        target.put(name + ".max", max.get());
+    }
+
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        total.reset();
+        max.reset();
+    }
+
+    private static long percentile(long[] counts, long sum, double percentile) {
+        if (sum == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(sum * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,205 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 当前线程上正在组装的一条日志
+ * <p>
+ * tag、method、file和append设置的内容都保存在这里，每个线程每个{@link LogPrinter}只有一个，
+ * 一条日志输出或被丢弃后清空复用。同时缓存带线程名的Tag，线程名和Tag不变时不再拼接字符串。
+ * 只在所属线程上使用，不需要同步。
+ * </p>
+ * <p>
+ * 适配虚拟线程时只在设置了内容的日志组装期间创建，没有设置内容的日志共用只读的{@link #EMPTY}。
+ * </p>
+ */
+final class LocalRecord {
+
+    /**
+     * 没有设置任何内容的日志，所有线程共用，不能修改，也不缓存带线程名的Tag
+     */
+    static final LocalRecord EMPTY = new LocalRecord(true);
+
+    private static final int MAX_REUSED_APPENDS = 16;
+
+    private final boolean shared;
+
+    private String tag;
+
+    private int methodCount;
+
+    private boolean hasMethodCount;
+
+    private boolean printToFile;
+
+    private boolean hasPrintToFile;
+
+    //拼接的内容在这条日志确定要输出时才生成
+    private final ArrayList<Supplier<String>> appends = new ArrayList<>();
+
+    //拼接内容的列表视图，只用于兼容旧的接口
+    private final List<String> appendList = new AbstractList<String>() {
+        @Override
+        public String get(int index) {
+            return appends.get(index).get();
+        }
+
+        @Override
+        public int size() {
+            return appends.size();
+        }
+
+        @Override
+        public void add(int index, String element) {
+            appends.add(index, () -> element);
+        }
+
+        @Override
+        public String set(int index, String element) {
+            return appends.set(index, () -> element).get();
+        }
+
+        @Override
+        public String remove(int index) {
+            return appends.remove(index).get();
+        }
+    };
+
+    //带线程名的Tag缓存
+    private String cachedTag;
+
+    private String cachedThreadName;
+
+    private String cachedThreadTag;
+
+    LocalRecord() {
+        this(false);
+    }
+
+    private LocalRecord(boolean shared) {
+        this.shared = shared;
+    }
+
+    void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    void setMethodCount(int methodCount) {
+        this.methodCount = methodCount;
+        this.hasMethodCount = true;
+    }
+
+    void setPrintToFile(boolean printToFile) {
+        this.printToFile = printToFile;
+        this.hasPrintToFile = true;
+    }
+
+    void clearMethodCount() {
+        this.hasMethodCount = false;
+    }
+
+    /**
+     * @return 单独设置的方法栈数量，没有设置时返回null
+     */
+    Integer getMethodCount() {
+        return hasMethodCount ? methodCount : null;
+    }
+
+    void append(Supplier<String> supplier) {
+        appends.add(supplier);
+    }
+
+    /**
+     * @return 拼接内容的列表视图，读取元素时生成内容，添加的元素作为拼接内容
+     */
+    List<String> getAppendList() {
+        return appendList;
+    }
+
+    /**
+     * @return 这条日志使用的tag，没有单独设置时使用配置中的tag
+     */
+    String getTag(LogSettings settings) {
+        String result = tag;
+        if (LogUtil.isEmpty(result)) {
+            result = settings.getTag();
+        }
+        return LogUtil.isEmpty(result) ? LogConfig.DEFAULT_TAG : result;
+    }
+
+    boolean isPrintToFile(LogSettings settings) {
+        return hasPrintToFile ? printToFile : settings.isPrintToFile();
+    }
+
+    int getMethodCount(LogSettings settings) {
+        return hasMethodCount ? methodCount : settings.getMethodCount();
+    }
+
+    /**
+     * 清空这条日志的所有设置并生成拼接的内容，先清空再调用supplier，supplier中输出的日志不会影响这条日志，
+     * 需要在读取tag、方法栈数量和文件输出之后调用
+     *
+     * @return 拼接的内容，没有拼接时返回null
+     */
+    @SuppressWarnings("unchecked")
+    List<String> takeAppendMsgList() {
+        if (appends.isEmpty()) {
+            reset();
+            return null;
+        }
+        Object[] suppliers = appends.toArray();
+        reset();
+        List<String> msgList = new ArrayList<>(suppliers.length);
+        for (Object supplier : suppliers) {
+            String msg = ((Supplier<String>) supplier).get();
+            if (!LogUtil.isEmpty(msg)) {
+                msgList.add(msg);
+            }
+        }
+        return msgList;
+    }
+
+    /**
+     * @param tag 不含线程信息的tag
+     * @return 附加了当前线程名的tag，线程没有名字时（例如虚拟线程）使用线程id
+     */
+    String getThreadTag(String tag) {
+        String threadName = LogEvent.threadName(Thread.currentThread());
+        if (shared) {
+            return tag + "[" + threadName + "]";
+        }
+        if (!tag.equals(cachedTag) || !threadName.equals(cachedThreadName)) {
+            cachedTag = tag;
+            cachedThreadName = threadName;
+            cachedThreadTag = tag + "[" + threadName + "]";
+        }
+        return cachedThreadTag;
+    }
+
+    /**
+     * 一条日志输出或被丢弃后清空tag、方法栈数量、文件输出和拼接内容
+     */
+    void reset() {
+        if (shared) {
+            return;
+        }
+        tag = null;
+        hasMethodCount = false;
+        hasPrintToFile = false;
+        if (!appends.isEmpty()) {
+            clearAppends();
+        }
+    }
+
+    private void clearAppends() {
+        // 一次拼接很多内容撑大的列表不长期保留
+        boolean large = appends.size() > MAX_REUSED_APPENDS;
+        appends.clear();
+        if (large) {
+            appends.trimToSize();
+        }
+    }
+}
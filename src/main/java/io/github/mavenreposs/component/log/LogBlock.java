@@ -0,0 +1,78 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.Arrays;
+
+/**
+ * 渲染完成的一整条日志
+ * <p>
+ * 边框、调用栈、拼接内容和消息的每一行都渲染在同一个缓冲区中，行与行之间以'\n'分隔，
+ * 日志输出工具可以一次性写出整块内容，也可以逐行读取。
+ * </p>
+ */
+public final class LogBlock {
+
+    private final StringBuilder text;
+
+    //每一行在text中的起始位置
+    private int[] lineStarts = new int[8];
+
+    private int lineCount;
+
+    public LogBlock() {
+        this(256);
+    }
+
+    public LogBlock(int capacity) {
+        text = new StringBuilder(capacity);
+    }
+
+    /**
+     * 开始新的一行
+     *
+     * @return 用于写入这一行内容的缓冲区
+     */
+    public StringBuilder newLine() {
+        if (lineCount > 0) {
+            text.append('\n');
+        }
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = text.length();
+        return text;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public String getLine(int index) {
+        return text.substring(lineStarts[index], getLineEnd(index));
+    }
+
+    /**
+     * 把指定行的内容追加到目标缓冲区，不创建中间字符串
+     *
+     * @param index  行号
+     * @param target 目标缓冲区
+     */
+    public void appendLine(int index, StringBuilder target) {
+        target.append(text, lineStarts[index], getLineEnd(index));
+    }
+
+    /**
+     * @return 整块日志内容，行与行之间以'\n'分隔，末尾没有换行
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    private int getLineEnd(int index) {
+        return index + 1 < lineCount ? lineStarts[index + 1] - 1 : text.length();
+    }
+}
@@ -1,14 +1,25 @@
 package io.github.mavenreposs.component.log;
 
 import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+import io.github.mavenreposs.component.log.logger.BinaryFileLogger;
 import io.github.mavenreposs.component.log.logger.ConsoleLogger;
 import io.github.mavenreposs.component.log.logger.FileLogger;
+import io.github.mavenreposs.component.log.messager.ObjectMessager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Log打印默认配置
+ * <p>
+ * 修改配置的方法互斥执行，每次修改后发布一份新的不可变快照；输出日志时每条日志只读取一次快照，
+ * 不会读到修改了一半的配置，也不需要加锁。多项修改需要同时生效时使用{@link #update(Consumer)}。
+ * </p>
  */
 public final class LogConfig {
 
@@ -26,7 +37,61 @@ public final class LogConfig {
     //是否输出到文件
     private boolean printToFile = false;
 
-    private List<LoggerInterface> logger = new ArrayList<>();
+    //是否使用{}占位符格式化消息（同时兼容%s），否则按String.format格式化
+    private boolean placeholderFormat = false;
+
+    //Xml是否使用XSLT转换格式化（输出与之前版本完全一致），否则使用流式缩进
+    private boolean xmlTransformer = false;
+
+    //对象输出的最大嵌套深度
+    private int objectMaxDepth = ObjectMessager.DEFAULT_MAX_DEPTH;
+
+    //对象输出时每个集合、数组、Map最多输出的元素数量
+    private int objectMaxElements = ObjectMessager.DEFAULT_MAX_ELEMENTS;
+
+    //单条日志内容的长度上限（字符数），0表示不限制
+    private int maxRecordSize = 0;
+
+    //每段拼接内容的长度上限（字符数），0表示不限制
+    private int maxSectionSize = 0;
+
+    //每个时间窗口内每个Tag或调用位置最多输出的日志数量，0表示不限流
+    private int rateLimit = 0;
+
+    //限流和丢弃汇总的时间窗口（毫秒）
+    private long rateLimitWindow = 1000;
+
+    //是否按调用位置限流，否则按Tag限流
+    private boolean rateLimitByCallSite = false;
+
+    //按日志级别采样，每N条输出1条，0和1表示不采样
+    private final int[] sampling = new int[LogLevel.NONE + 1];
+
+    //合并连续重复日志的最长时间（毫秒），0表示不合并
+    private long duplicateMaxMillis = 0;
+
+    //同一异常堆栈只输出一次完整堆栈的时间窗口（毫秒），0表示每次都输出完整堆栈
+    private long stackTraceWindow = 0;
+
+    //二进制日志文件，指定Tag的普通日志只写入这个文件
+    private BinaryFileLogger binaryLogger;
+
+    //写入二进制日志文件的Tag，为空时所有Tag都写入
+    private Set<String> binaryTags = Collections.emptySet();
+
+    //是否异步输出，开启后调用线程只负责投递日志，由后台线程渲染并写入
+    private boolean async = false;
+
+    //异步队列容量，会向上取整为2的幂
+    private int asyncCapacity = 8192;
+
+    //异步队列已满时是否直接丢弃日志，否则调用线程等待队列空出位置
+    private boolean dropWhenFull = false;
+
+    //是否在虚拟线程上输出日志，开启后不使用ThreadLocal保存日志状态
+    private boolean virtualThreads = false;
+
+    private final List<LoggerInterface> logger = new ArrayList<>();
 
     /**
      * 日志级别，只有大于等于logLevel的日志才会打印
@@ -35,67 +100,303 @@ public final class LogConfig {
      */
     private int logLevel = LogLevel.VERBOSE;
 
+    //当前生效的配置快照
+    private volatile LogSettings snapshot;
+
+    //update执行期间不发布中间状态
+    private boolean updating;
+
     public LogConfig() {
         logger.add(new ConsoleLogger());
         logger.add(new FileLogger());
+        publish();
+    }
+
+    /**
+     * 在一次修改中设置多项配置，全部设置完成后才生效，例如：
+     * {@code config.update(c -> c.tag("ORDER").setLogLevel(LogLevel.DEBUG))}
+     *
+     * @param changes 修改配置
+     * @return LogConfig
+     */
+    public synchronized LogConfig update(Consumer<LogConfig> changes) {
+        boolean outermost = !updating;
+        updating = true;
+        try {
+            changes.accept(this);
+        } finally {
+            if (outermost) {
+                updating = false;
+                publish();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return 当前生效的配置快照
+     */
+    LogSettings snapshot() {
+        return snapshot;
     }
 
-    public LogConfig tag(String tag) {
+    private void publish() {
+        if (!updating) {
+            snapshot = new LogSettings(tag, methodCount, showThreadInfo, printToFile, placeholderFormat,
+                    xmlTransformer, objectMaxDepth, objectMaxElements, maxRecordSize, maxSectionSize, rateLimit,
+                    rateLimitWindow, rateLimitByCallSite, sampling, duplicateMaxMillis, stackTraceWindow,
+                    binaryLogger, binaryTags, async, asyncCapacity, dropWhenFull, virtualThreads, logger, logLevel);
+        }
+    }
+
+    public synchronized LogConfig tag(String tag) {
         this.tag = tag;
+        publish();
         return this;
     }
 
-    public LogConfig showThreadInfo(boolean isShow) {
+    public synchronized LogConfig showThreadInfo(boolean isShow) {
         showThreadInfo = isShow;
+        publish();
         return this;
     }
 
-    public LogConfig methodCount(int methodCount) {
+    public synchronized LogConfig methodCount(int methodCount) {
         if (methodCount < 0) {
             methodCount = 0;
         }
         this.methodCount = methodCount;
+        publish();
         return this;
     }
 
-    public LogConfig printToFile(boolean printToFile) {
+    public synchronized LogConfig printToFile(boolean printToFile) {
         this.printToFile = printToFile;
+        publish();
         return this;
     }
 
-    public LogConfig addLogger(LoggerInterface loggerInterface) {
-        if (loggerInterface != null && !logger.contains(loggerInterface)) {
-            logger.add(loggerInterface);
+    /**
+     * 设置消息参数的格式化方式
+     *
+     * @param placeholderFormat true使用{}占位符（同时兼容%s），false按String.format格式化
+     * @return LogConfig
+     */
+    public synchronized LogConfig placeholderFormat(boolean placeholderFormat) {
+        this.placeholderFormat = placeholderFormat;
+        publish();
+        return this;
+    }
+
+    public synchronized LogConfig xmlTransformer(boolean xmlTransformer) {
+        this.xmlTransformer = xmlTransformer;
+        publish();
+        return this;
+    }
+
+    /**
+     * 限制{@link RCLog#object(Object)}输出的对象图大小，循环引用总是会被截断
+     *
+     * @param maxDepth    最大嵌套深度
+     * @param maxElements 每个集合、数组、Map最多输出的元素数量
+     * @return LogConfig
+     */
+    public synchronized LogConfig objectLimits(int maxDepth, int maxElements) {
+        this.objectMaxDepth = Math.max(maxDepth, 1);
+        this.objectMaxElements = Math.max(maxElements, 0);
+        publish();
+        return this;
+    }
+
+    /**
+     * 限制单条日志的内容长度，Json、Xml、对象和异常堆栈在格式化过程中达到上限后立即停止，
+     * 超出的部分截断并注明原始大小；拼接内容和消息共用这个上限，消息之外剩下的长度依次分给拼接内容
+     *
+     * @param maxRecordSize 长度上限（字符数），0表示不限制
+     * @return LogConfig
+     */
+    public synchronized LogConfig maxRecordSize(int maxRecordSize) {
+        this.maxRecordSize = Math.max(maxRecordSize, 0);
+        publish();
+        return this;
+    }
+
+    /**
+     * 限制每段拼接内容（append）的长度
+     *
+     * @param maxSectionSize 长度上限（字符数），0表示不限制
+     * @return LogConfig
+     */
+    public synchronized LogConfig maxSectionSize(int maxSectionSize) {
+        this.maxSectionSize = Math.max(maxSectionSize, 0);
+        publish();
+        return this;
+    }
+
+    /**
+     * 限流，每个时间窗口内每个Tag（或调用位置）最多输出maxRecords条日志，
+     * 超出的日志在格式化之前丢弃，窗口结束后输出一条汇总日志说明丢弃的数量
+     *
+     * @param maxRecords   每个窗口最多输出的日志数量，0表示不限流
+     * @param windowMillis 时间窗口（毫秒）
+     * @return LogConfig
+     */
+    public synchronized LogConfig rateLimit(int maxRecords, long windowMillis) {
+        this.rateLimit = Math.max(maxRecords, 0);
+        this.rateLimitWindow = Math.max(windowMillis, 1);
+        publish();
+        return this;
+    }
+
+    /**
+     * @param byCallSite true按调用日志方法的代码位置分别限流，false按Tag限流
+     * @return LogConfig
+     */
+    public synchronized LogConfig rateLimitByCallSite(boolean byCallSite) {
+        this.rateLimitByCallSite = byCallSite;
+        publish();
+        return this;
+    }
+
+    /**
+     * 按日志级别采样，该级别的日志每everyN条只输出1条，丢弃的数量计入限流的汇总日志
+     *
+     * @param logLevel 日志级别，参考{@link LogLevel}
+     * @param everyN   每N条输出1条，0和1表示不采样
+     * @return LogConfig
+     */
+    public synchronized LogConfig sampling(int logLevel, int everyN) {
+        if (logLevel >= LogLevel.VERBOSE && logLevel <= LogLevel.ASSERT) {
+            sampling[logLevel] = Math.max(everyN, 0);
         }
+        publish();
         return this;
     }
 
-    int getMethodCount() {
-        return methodCount;
+    /**
+     * 合并连续重复的日志：与上一条日志的Tag、级别和内容都相同时只计数不输出，
+     * 出现不同的日志、重复超过maxMillis或调用flush时输出一条"Last message repeated N times"
+     *
+     * @param maxMillis 同一段重复最长合并的时间（毫秒），0表示不合并
+     * @return LogConfig
+     */
+    public synchronized LogConfig suppressDuplicates(long maxMillis) {
+        this.duplicateMaxMillis = Math.max(maxMillis, 0);
+        publish();
+        return this;
     }
 
-    boolean isShowThreadInfo() {
-        return showThreadInfo;
+    /**
+     * 合并重复的异常堆栈：按异常类型和栈帧计算指纹，同一堆栈在时间窗口内第一次出现时输出完整堆栈和编号，
+     * 之后只输出编号、异常消息和出现次数，窗口结束后再出现时重新输出完整堆栈
+     *
+     * @param windowMillis 时间窗口（毫秒），0表示每次都输出完整堆栈
+     * @return LogConfig
+     */
+    public synchronized LogConfig suppressStackTraces(long windowMillis) {
+        this.stackTraceWindow = Math.max(windowMillis, 0);
+        publish();
+        return this;
     }
 
-    int getLogLevel() {
-        return logLevel;
+    /**
+     * 指定Tag的普通日志（info、debug等带参数的消息）不再格式化和渲染，只把消息模板和参数写入二进制日志文件，
+     * 需要查看时用{@link io.github.mavenreposs.component.log.logger.BinaryLogDecoder}还原成文本；
+     * Json、Xml、对象和异常日志仍然按文本输出；不需要输出到文件（printToFile为false）的日志也按文本输出
+     *
+     * @param binaryLogger 二进制日志文件，为null时关闭
+     * @param tags         写入二进制日志文件的Tag，不指定时所有Tag都写入
+     * @return LogConfig
+     */
+    public synchronized LogConfig binaryLogger(BinaryFileLogger binaryLogger, String... tags) {
+        this.binaryTags = new HashSet<>(Arrays.asList(tags));
+        this.binaryLogger = binaryLogger;
+        publish();
+        return this;
     }
 
-    public LogConfig setLogLevel(int logLevel) {
-        this.logLevel = logLevel;
+    /**
+     * 设置是否异步输出，队列容量和丢弃策略在首次异步输出时生效
+     *
+     * @param async 是否异步输出
+     * @return LogConfig
+     */
+    public synchronized LogConfig async(boolean async) {
+        this.async = async;
+        publish();
         return this;
     }
 
-    String getTag() {
-        return tag;
+    public synchronized LogConfig asyncCapacity(int asyncCapacity) {
+        if (asyncCapacity < 1) {
+            asyncCapacity = 1;
+        }
+        this.asyncCapacity = asyncCapacity;
+        publish();
+        return this;
     }
 
-    boolean isPrintToFile() {
-        return printToFile;
+    public synchronized LogConfig dropWhenFull(boolean dropWhenFull) {
+        this.dropWhenFull = dropWhenFull;
+        publish();
+        return this;
+    }
+
+    /**
+     * 适配虚拟线程：不使用ThreadLocal保存日志状态，tag、method、file和append设置的内容只在这条日志组装期间保存，
+     * 日志输出或被丢弃后立即释放；没有设置这些内容的日志不创建任何状态，大量短生命周期的虚拟线程不会各自保留一份。
+     * 格式化消息时每次使用新的StringBuilder，使用XSLT格式化Xml时每次新建Transformer。
+     * 输出日志和写文件使用的锁都不会占住虚拟线程的载体线程，
+     * 同时开启{@link #async(boolean)}时调用线程只投递日志，由后台平台线程写入。
+     *
+     * @param virtualThreads 是否适配虚拟线程
+     * @return LogConfig
+     */
+    public synchronized LogConfig virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        publish();
+        return this;
     }
 
-    List<LoggerInterface> getLoggers() {
-        return logger;
+    public synchronized LogConfig addLogger(LoggerInterface loggerInterface) {
+        if (loggerInterface != null && !logger.contains(loggerInterface)) {
+            logger.add(loggerInterface);
+        }
+        publish();
+        return this;
+    }
+
+    /**
+     * 获取指定类型的日志输出工具，例如调整默认控制台输出的级别：
+     * {@code config.getLogger(ConsoleLogger.class).level(LogLevel.WARN)}
+     *
+     * @param type 日志输出工具的类型
+     * @param <T>  日志输出工具的类型
+     * @return 第一个该类型的日志输出工具，没有时返回null
+     */
+    public synchronized <T extends LoggerInterface> T getLogger(Class<T> type) {
+        for (LoggerInterface loggerInterface : logger) {
+            if (type.isInstance(loggerInterface)) {
+                return type.cast(loggerInterface);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 移除所有日志输出工具，包括默认的控制台和文件输出
+     *
+     * @return LogConfig
+     */
+    public synchronized LogConfig clearLoggers() {
+        logger.clear();
+        publish();
+        return this;
+    }
+
+    public synchronized LogConfig setLogLevel(int logLevel) {
+        this.logLevel = logLevel;
+        publish();
+        return this;
     }
 }
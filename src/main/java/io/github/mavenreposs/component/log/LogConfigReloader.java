@@ -0,0 +1,346 @@
+package io.github.mavenreposs.component.log;
+
+import io.github.mavenreposs.component.log.contracts.AbstractLogger;
+import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+import io.github.mavenreposs.component.log.logger.ConsoleLogger;
+import io.github.mavenreposs.component.log.logger.FileLogger;
+import io.github.mavenreposs.component.log.logger.NdjsonLogger;
+import io.github.mavenreposs.component.log.logger.StdoutLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 监听配置文件，修改后立即应用到日志配置，不需要重启进程
+ * <p>
+ * 配置文件为UTF-8编码的properties文件，文件中没有的配置项保持不变，一次修改的所有配置项同时生效：
+ * </p>
+ * <pre>
+ * level=DEBUG
+ * tag=ORDER
+ * methodCount=2
+ * showThreadInfo=true
+ * printToFile=false
+ * loggers=console,file
+ * logger.console.level=WARN
+ * </pre>
+ * <p>
+ * loggers可以使用console、stdout、file、ndjson，已有的同类输出工具会被保留而不是重新创建，被移除的会被关闭；
+ * 代码中添加的其它输出工具不受影响。级别可以使用名称或{@link LogLevel}中的数值。
+ * </p>
+ * <p>
+ * 一次保存通常会触发多次修改事件，监听到修改后等文件200毫秒内没有新的修改再读取，
+ * 内容与上一次应用的相同时不重复应用。
+ * </p>
+ */
+public final class LogConfigReloader {
+
+    // 最后一次修改事件之后等待的时间（毫秒）
+    private static final long QUIET_MILLIS = 200;
+
+    private static final String[] LOGGER_NAMES = {"console", "stdout", "file", "ndjson"};
+
+    private static final Class<?>[] LOGGER_TYPES = {ConsoleLogger.class, StdoutLogger.class, FileLogger.class, NdjsonLogger.class};
+
+    private final LogConfig config;
+
+    private final File file;
+
+    // 读取文件和无效的配置项数量
+    private final LongAdder errorCount = new LongAdder();
+
+    private volatile WatchService watchService;
+
+    // 上一次应用的文件内容，只在持有this时使用
+    private byte[] lastContent;
+
+    /**
+     * @param config 日志配置，例如{@link RCLog#config()}
+     * @param file   配置文件
+     */
+    public LogConfigReloader(LogConfig config, File file) {
+        this.config = config;
+        this.file = file.getAbsoluteFile();
+    }
+
+    /**
+     * 先应用一次配置文件，再在后台线程上监听文件所在的文件夹
+     *
+     * @return LogConfigReloader
+     * @throws IOException 无法监听配置文件所在的文件夹
+     */
+    public synchronized LogConfigReloader start() throws IOException {
+        if (watchService != null) {
+            return this;
+        }
+        WatchService service = FileSystems.getDefault().newWatchService();
+        file.getParentFile().toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+        reload();
+        Thread thread = new Thread(() -> watch(service), "RCLog-ConfigReloader");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * 停止监听
+     */
+    public synchronized void close() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                errorCount.increment();
+            }
+        }
+    }
+
+    /**
+     * 立即读取并应用配置文件
+     *
+     * @return 文件读取成功时返回true
+     */
+    public boolean reload() {
+        return reload(true);
+    }
+
+    /**
+     * @param force 文件内容与上一次应用的相同时是否仍然应用
+     */
+    private synchronized boolean reload(boolean force) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            errorCount.increment();
+            return false;
+        }
+        if (!force && Arrays.equals(content, lastContent)) {
+            return true;
+        }
+        lastContent = content;
+        Properties properties = new Properties();
+        try {
+            properties.load(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+        } catch (IOException | IllegalArgumentException e) {
+            errorCount.increment();
+            return false;
+        }
+        List<LoggerInterface> dropped = new ArrayList<>();
+        config.update(c -> apply(c, properties, dropped));
+        //新的配置生效后再关闭，正在使用旧配置输出的日志写入关闭后的输出工具时由输出工具自己处理
+        for (LoggerInterface loggerInterface : dropped) {
+            loggerInterface.close();
+        }
+        return true;
+    }
+
+    /**
+     * @return 读取文件失败和无效的配置项数量
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    private void watch(WatchService service) {
+        Path fileName = file.toPath().getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = isChanged(key, fileName);
+                if (!key.reset()) {
+                    return;
+                }
+                if (!changed) {
+                    continue;
+                }
+                //等待同一次保存的其它修改事件，避免读到写了一半的文件
+                while ((key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isChanged(key, fileName);
+                    if (!key.reset()) {
+                        return;
+                    }
+                }
+                reload(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 调用了close
+        }
+    }
+
+    private static boolean isChanged(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param dropped 收集被移除的输出工具，配置生效后关闭
+     */
+    private void apply(LogConfig config, Properties properties, List<LoggerInterface> dropped) {
+        String value = property(properties, "level");
+        if (value != null) {
+            int level = parseLevel(value);
+            if (level > 0) {
+                config.setLogLevel(level);
+            }
+        }
+        value = property(properties, "tag");
+        if (value != null) {
+            config.tag(value);
+        }
+        value = property(properties, "methodCount");
+        if (value != null) {
+            try {
+                config.methodCount(Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                errorCount.increment();
+            }
+        }
+        value = property(properties, "showThreadInfo");
+        if (value != null) {
+            config.showThreadInfo(Boolean.parseBoolean(value));
+        }
+        value = property(properties, "printToFile");
+        if (value != null) {
+            config.printToFile(Boolean.parseBoolean(value));
+        }
+        value = property(properties, "loggers");
+        if (value != null) {
+            applyLoggers(config, value.split(","), dropped);
+        }
+        for (int i = 0; i < LOGGER_NAMES.length; i++) {
+            value = property(properties, "logger." + LOGGER_NAMES[i] + ".level");
+            if (value != null) {
+                int level = parseLevel(value);
+                LoggerInterface loggerInterface = config.getLogger(LOGGER_TYPES[i].asSubclass(LoggerInterface.class));
+                if (level > 0 && loggerInterface != null) {
+                    setLevel(loggerInterface, level);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按名称调整输出工具，保留已有的同类输出工具和代码中添加的其它输出工具
+     */
+    private void applyLoggers(LogConfig config, String[] names, List<LoggerInterface> dropped) {
+        List<LoggerInterface> current = config.snapshot().getLoggers();
+        List<LoggerInterface> loggers = new ArrayList<>();
+        for (LoggerInterface loggerInterface : current) {
+            if (indexOfType(loggerInterface) < 0) {
+                loggers.add(loggerInterface);
+            }
+        }
+        for (String name : names) {
+            int index = indexOfName(name.trim());
+            if (index < 0) {
+                if (!name.trim().isEmpty()) {
+                    errorCount.increment();
+                }
+                continue;
+            }
+            LoggerInterface loggerInterface = config.getLogger(LOGGER_TYPES[index].asSubclass(LoggerInterface.class));
+            if (loggerInterface == null) {
+                loggerInterface = newLogger(index);
+            }
+            if (loggerInterface != null) {
+                loggers.add(loggerInterface);
+            }
+        }
+        config.clearLoggers();
+        for (LoggerInterface loggerInterface : loggers) {
+            config.addLogger(loggerInterface);
+        }
+        for (LoggerInterface loggerInterface : current) {
+            if (!loggers.contains(loggerInterface)) {
+                dropped.add(loggerInterface);
+            }
+        }
+    }
+
+    private LoggerInterface newLogger(int index) {
+        switch (LOGGER_NAMES[index]) {
+            case "console":
+                return new ConsoleLogger();
+            case "stdout":
+                return new StdoutLogger();
+            case "file":
+                return new FileLogger();
+            default:
+                try {
+                    return new NdjsonLogger();
+                } catch (IOException e) {
+                    errorCount.increment();
+                    return null;
+                }
+        }
+    }
+
+    private static void setLevel(LoggerInterface loggerInterface, int level) {
+        if (loggerInterface instanceof AbstractLogger) {
+            ((AbstractLogger<?>) loggerInterface).level(level);
+        }
+    }
+
+    private static int indexOfType(LoggerInterface loggerInterface) {
+        for (int i = 0; i < LOGGER_TYPES.length; i++) {
+            if (LOGGER_TYPES[i] == loggerInterface.getClass()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfName(String name) {
+        for (int i = 0; i < LOGGER_NAMES.length; i++) {
+            if (LOGGER_NAMES[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String property(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        return value != null ? value.trim() : null;
+    }
+
+    /**
+     * @return 日志级别，无效时返回0
+     */
+    private int parseLevel(String value) {
+        int level = LogLevel.parse(value);
+        if (level < 0) {
+            errorCount.increment();
+        }
+        return level;
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一条待输出的日志记录
+ * <p>
+ * 在调用线程上收集好等级、Tag、消息、拼接内容以及调用栈，之后可以在任意线程上渲染输出
+ * </p>
+ */
+public final class LogEvent {
+
+    private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+
+    private final int logType;
+
+    private final String tag;
+
+    private final String plainTag;
+
+    private final String message;
+
+    private final List<String> appendMsgList;
+
+    private final StackTraceElement[] callerFrames;
+
+    private final boolean isPrintToFile;
+
+    private final long timestamp;
+
+    private final String threadName;
+
+    /**
+     * 在调用线程上创建，记录当前时间和当前线程名
+     */
+    public LogEvent(int logType, String tag, String message, List<String> appendMsgList,
+                    StackTraceElement[] callerFrames, boolean isPrintToFile) {
+        this(logType, tag, tag, message, appendMsgList, callerFrames, isPrintToFile);
+    }
+
+    /**
+     * 在调用线程上创建，记录当前时间和当前线程名
+     *
+     * @param tag      输出的Tag，可能附加了线程信息
+     * @param plainTag 没有附加线程信息的Tag
+     */
+    public LogEvent(int logType, String tag, String plainTag, String message, List<String> appendMsgList,
+                    StackTraceElement[] callerFrames, boolean isPrintToFile) {
+        this(logType, tag, plainTag, message, appendMsgList, callerFrames, isPrintToFile,
+                System.currentTimeMillis(), threadName(Thread.currentThread()));
+    }
+
+    public LogEvent(int logType, String tag, String message, List<String> appendMsgList,
+                    StackTraceElement[] callerFrames, boolean isPrintToFile, long timestamp, String threadName) {
+        this(logType, tag, tag, message, appendMsgList, callerFrames, isPrintToFile, timestamp, threadName);
+    }
+
+    public LogEvent(int logType, String tag, String plainTag, String message, List<String> appendMsgList,
+                    StackTraceElement[] callerFrames, boolean isPrintToFile, long timestamp, String threadName) {
+        this.timestamp = timestamp;
+        this.threadName = threadName;
+        this.logType = logType;
+        this.tag = tag;
+        this.plainTag = plainTag != null ? plainTag : tag;
+        this.message = message;
+        this.appendMsgList = appendMsgList != null ? appendMsgList : Collections.emptyList();
+        this.callerFrames = callerFrames != null ? callerFrames : NO_FRAMES;
+        this.isPrintToFile = isPrintToFile;
+    }
+
+    public int getLogType() {
+        return logType;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * @return 没有附加线程信息的Tag，用于统计和结构化输出
+     */
+    public String getPlainTag() {
+        return plainTag;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public List<String> getAppendMsgList() {
+        return appendMsgList;
+    }
+
+    /**
+     * @return 调用方的方法栈，下标0为直接调用日志方法的栈帧
+     */
+    public StackTraceElement[] getCallerFrames() {
+        return callerFrames;
+    }
+
+    public boolean isPrintToFile() {
+        return isPrintToFile;
+    }
+
+    /**
+     * @return 日志产生的时间（毫秒）
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return 产生日志的线程名
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return 日志中使用的线程名，线程没有名字时（例如虚拟线程）使用线程id
+     */
+    static String threadName(Thread thread) {
+        String name = thread.getName();
+        return name.isEmpty() ? "#" + thread.getId() : name;
+    }
+}
@@ -23,4 +23,35 @@ public class LogLevel {
      */
     public static final int NONE = 7;
 
+    private static final String[] NAMES = {"", "VERBOSE", "DEBUG", "INFO", "WARN", "ERROR", "ASSERT", "NONE"};
+
+    /**
+     * @param level 日志级别
+     * @return 级别名称，例如INFO；不是有效级别时返回数值本身
+     */
+    public static String getName(int level) {
+        return level >= VERBOSE && level <= NONE ? NAMES[level] : Integer.toString(level);
+    }
+
+    /**
+     * @param value 级别名称（不区分大小写）或数值
+     * @return 日志级别，无法识别时返回-1
+     */
+    public static int parse(String value) {
+        for (int i = VERBOSE; i <= NONE; i++) {
+            if (NAMES[i].equalsIgnoreCase(value)) {
+                return i;
+            }
+        }
+        try {
+            int level = Integer.parseInt(value);
+            if (level >= VERBOSE && level <= NONE) {
+                return level;
+            }
+        } catch (NumberFormatException e) {
+            // 按无法识别处理
+        }
+        return -1;
+    }
+
 }
@@ -0,0 +1,186 @@
+package io.github.mavenreposs.component.log;
+
+import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 日志组件的运行指标
+ * <p>
+ * 所有计数都使用分段计数的LongAdder，记录时不加锁，只在通过JMX读取时汇总，可以在生产环境常开。
+ * </p>
+ */
+final class LogMetrics implements LogMetricsMXBean {
+
+    static final String PARSE_JSON = "parse.json";
+
+    static final String PARSE_XML = "parse.xml";
+
+    static final String PARSE_OBJECT = "parse.object";
+
+    //最多单独统计的Tag数量
+    private static final int MAX_TAGS = 1024;
+
+    private final LogConfig config;
+
+    private final LongAdder[] recordsByLevel = new LongAdder[LogLevel.NONE + 1];
+
+    private final ConcurrentHashMap<String, LongAdder> recordsByTag = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Class<?>, SinkMetrics> sinks = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram renderLatency = new LatencyHistogram();
+
+    private final LongAdder lockWaitNanos = new LongAdder();
+
+    LogMetrics(LogConfig config) {
+        this.config = config;
+        for (int i = 0; i < recordsByLevel.length; i++) {
+            recordsByLevel[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 注册到平台MBeanServer，同名的已经注册时替换
+     *
+     * @param name ObjectName中的name
+     */
+    void register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("io.github.mavenreposs.component.log:type=LogMetrics,name=" + name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException | SecurityException e) {
+        }
+    }
+
+    /**
+     * @param plainTag 没有附加线程信息的Tag
+     */
+    void recordEvent(int logType, String plainTag) {
+        if (logType >= 0 && logType < recordsByLevel.length) {
+            recordsByLevel[logType].increment();
+        }
+        String key = plainTag;
+        LongAdder counter = recordsByTag.get(key);
+        if (counter == null) {
+            if (recordsByTag.size() >= MAX_TAGS) {
+                key = "<other>";
+            }
+            counter = recordsByTag.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    void recordLockWait(long nanos) {
+        lockWaitNanos.add(nanos);
+    }
+
+    void recordRender(long nanos) {
+        renderLatency.record(nanos);
+    }
+
+    void recordSink(LoggerInterface loggerInterface, int chars, long nanos) {
+        SinkMetrics sink = sinks.get(loggerInterface.getClass());
+        if (sink == null) {
+            sink = sinks.computeIfAbsent(loggerInterface.getClass(), k -> new SinkMetrics());
+        }
+        sink.chars.add(chars);
+        sink.latency.record(nanos);
+    }
+
+    void recordParse(String name, long nanos) {
+        latency(name).record(nanos);
+    }
+
+    private LatencyHistogram latency(String name) {
+        LatencyHistogram histogram = latencies.get(name);
+        return histogram != null ? histogram : latencies.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    @Override
+    public long getRecordCount() {
+        long count = 0;
+        for (LongAdder counter : recordsByLevel) {
+            count += counter.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Long> getRecordsByLevel() {
+        Map<String, Long> result = new TreeMap<>();
+        for (int i = LogLevel.VERBOSE; i <= LogLevel.ASSERT; i++) {
+            result.put(LogLevel.getName(i), recordsByLevel[i].sum());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getRecordsByTag() {
+        Map<String, Long> result = new TreeMap<>();
+        recordsByTag.forEach((tag, counter) -> result.put(tag, counter.sum()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getCharsWrittenBySink() {
+        Map<String, Long> result = new TreeMap<>();
+        sinks.forEach((type, sink) -> result.merge(type.getSimpleName(), sink.chars.sum(), Long::sum));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getErrorsBySink() {
+        Map<String, Long> result = new TreeMap<>();
+        for (LoggerInterface loggerInterface : config.snapshot().getLoggers()) {
+            result.merge(loggerInterface.getClass().getSimpleName(), loggerInterface.getErrorCount(), Long::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public long getLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    @Override
+    public Map<String, Long> getLatencyNanos() {
+        Map<String, Long> result = new TreeMap<>();
+        renderLatency.snapshot("render", result);
+        latencies.forEach((name, histogram) -> histogram.snapshot(name, result));
+        sinks.forEach((type, sink) -> sink.latency.snapshot("sink." + type.getSimpleName(), result));
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : recordsByLevel) {
+            counter.reset();
+        }
+        recordsByTag.clear();
+        sinks.clear();
+        latencies.clear();
+        renderLatency.reset();
+        lockWaitNanos.reset();
+    }
+
+    private static final class SinkMetrics {
+
+        private final LongAdder chars = new LongAdder();
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.Map;
+
+/**
+ * 日志组件自身的运行指标，通过JMX查看
+ * <p>
+ * ObjectName为io.github.mavenreposs.component.log:type=LogMetrics,name=名称，
+ * 全局的{@link RCLog}注册为name=RCLog
+ * </p>
+ */
+public interface LogMetricsMXBean {
+
+    //已输出的日志数量
+    long getRecordCount();
+
+    //按级别统计的日志数量
+    Map<String, Long> getRecordsByLevel();
+
+    //按Tag（不含线程信息）统计的日志数量
+    Map<String, Long> getRecordsByTag();
+
+    //交给每个日志输出工具的字符数
+    Map<String, Long> getCharsWrittenBySink();
+
+    //每个日志输出工具内部忽略的异常数量
+    Map<String, Long> getErrorsBySink();
+
+    //同步输出时等待输出锁的总时间（纳秒）
+    long getLockWaitNanos();
+
+    //渲染、消息解析和每个日志输出工具的耗时（纳秒），包括次数、平均值、p50、p90、p99和最大值
+    Map<String, Long> getLatencyNanos();
+
+    //清空所有统计
+    void reset();
+}
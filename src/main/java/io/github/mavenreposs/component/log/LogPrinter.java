@@ -1,10 +1,14 @@
 package io.github.mavenreposs.component.log;
 
+import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+import io.github.mavenreposs.component.log.logger.BinaryFileLogger;
 import io.github.mavenreposs.component.log.messager.JsonMessager;
 import io.github.mavenreposs.component.log.messager.ObjectMessager;
 import io.github.mavenreposs.component.log.messager.XmlMessager;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * 日志打印机
@@ -15,74 +19,170 @@ import java.util.List;
 public final class LogPrinter {
 
     /**
-     * Localize single tag and method count for each thread
+     * 适配虚拟线程时正在组装的日志达到这个数量后，清理已经结束的线程留下的日志
      */
-    private final ThreadLocal<String> localTag = new ThreadLocal<>();
-    private final ThreadLocal<Integer> localMethodCount = new ThreadLocal<>();
-    private final ThreadLocal<Boolean> localIsPrintToFile = new ThreadLocal<>();
+    private static final int MAX_PENDING_RECORDS = 1024;
 
-    private final ThreadLocal<List<String>> localMessageList = new ThreadLocal<>();
+    /**
+     * 每个线程上正在组装的日志，包括单独设置的tag、方法栈数量、文件输出和拼接内容，输出后清空复用
+     */
+    private final ThreadLocal<LocalRecord> localRecord = ThreadLocal.withInitial(LocalRecord::new);
+
+    /**
+     * 适配虚拟线程时正在组装的日志，只在调用了tag、method、file或append之后到这条日志结束之前保存，
+     * 不在线程上保留任何状态
+     */
+    private final ConcurrentHashMap<Thread, LocalRecord> pendingRecords = new ConcurrentHashMap<>();
+
+    /**
+     * 正在组装的日志达到这个数量时清理一次，清理后仍然很多时加倍，避免每次新建都遍历
+     */
+    private volatile int pendingPurgeSize = MAX_PENDING_RECORDS;
 
     /**
      * It is used to determine log settings such as method count, thread info visibility
      */
     private final LogConfig mLogConfig = new LogConfig();
 
+    /**
+     * 异步模式下的分发器，首次以异步模式输出时创建
+     */
+    private volatile AsyncDispatcher asyncDispatcher;
+
+    /**
+     * 限流和采样计数
+     */
+    private final LogThrottle throttle = new LogThrottle();
+
+    /**
+     * 连续重复日志的合并
+     */
+    private final DuplicateFilter duplicateFilter = new DuplicateFilter(this::reportExpiredDuplicates);
+
+    /**
+     * 异常堆栈指纹，重复的堆栈只输出编号和次数
+     */
+    private final StackTraceCache stackTraceCache = new StackTraceCache();
+
+    /**
+     * 运行指标，调用{@link #registerMetrics(String)}后可以通过JMX查看
+     */
+    private final LogMetrics metrics = new LogMetrics(mLogConfig);
+
+    /**
+     * 同步输出时复用的模板，只在持有输出锁时使用
+     */
+    private final PrinterTemplate template = new PrinterTemplate();
+
+    /**
+     * 输出锁，保证日志不会交错；使用ReentrantLock，虚拟线程等待或持有时不会占住载体线程
+     */
+    private final ReentrantLock outputLock = new ReentrantLock();
+
     public LogConfig getLogConfig() {
         return mLogConfig;
     }
 
+    /**
+     * @return 当前线程上单独设置的方法栈数量，读写的是正在组装的这条日志
+     * @deprecated 使用{@link #method(int)}设置
+     */
+    @Deprecated
     public ThreadLocal<Integer> getLocalMethodCount() {
-        return localMethodCount;
+        return new ThreadLocal<Integer>() {
+            @Override
+            public Integer get() {
+                return editRecord().getMethodCount();
+            }
+
+            @Override
+            public void set(Integer value) {
+                if (value != null) {
+                    editRecord().setMethodCount(value);
+                } else {
+                    remove();
+                }
+            }
+
+            @Override
+            public void remove() {
+                editRecord().clearMethodCount();
+            }
+        };
     }
 
+    /**
+     * @return 当前线程上拼接的内容，读写的是正在组装的这条日志
+     * @deprecated 使用append系列方法拼接
+     */
+    @Deprecated
     public ThreadLocal<List<String>> getLocalMessageList() {
-        return localMessageList;
+        return new ThreadLocal<List<String>>() {
+            @Override
+            public List<String> get() {
+                return editRecord().getAppendList();
+            }
+
+            @Override
+            public void set(List<String> value) {
+                List<String> appendList = editRecord().getAppendList();
+                if (value == appendList) {
+                    return;
+                }
+                appendList.clear();
+                if (value != null) {
+                    appendList.addAll(value);
+                }
+            }
+
+            @Override
+            public void remove() {
+                editRecord().getAppendList().clear();
+            }
+        };
     }
 
     public LogPrinter tag(String tag) {
         if (tag != null) {
-            localTag.set(tag);
+            editRecord().setTag(tag);
         }
         return this;
     }
 
     public LogPrinter method(int methodCount) {
-        localMethodCount.set(methodCount);
+        editRecord().setMethodCount(methodCount);
         return this;
     }
 
     public LogPrinter file(boolean isPrintToFile) {
-        localIsPrintToFile.set(isPrintToFile);
+        editRecord().setPrintToFile(isPrintToFile);
         return this;
     }
 
 
 
     public LogPrinter append(String message, Object... args) {
-        String msg = createMessage(message, args);
-        if (!LogUtil.isEmpty(msg)) {
-            List<String> msgList = localMessageList.get();
-            if (msgList == null) {
-                msgList = new ArrayList<>();
-                localMessageList.set(msgList);
-            }
-            msgList.add(msg);
-        }
-        return this;
+        return appendLazily(() -> {
+            LogSettings settings = mLogConfig.snapshot();
+            return LogUtil.truncate(createMessage(settings, message, args), getSectionLimit(settings));
+        });
+    }
+
+    /**
+     * 拼接日志，只有这条日志最终会被输出时才调用supplier生成内容
+     *
+     * @param supplier 消息内容
+     * @return 返回日志对象
+     */
+    public LogPrinter append(Supplier<String> supplier) {
+        return supplier == null ? this : appendLazily(() -> LogUtil.truncate(supplier.get(), getSectionLimit(mLogConfig.snapshot())));
     }
 
     public LogPrinter appendJson(String json) {
-        String msg = parseJsonMessage(json);
-        if (!LogUtil.isEmpty(msg)) {
-            List<String> msgList = localMessageList.get();
-            if (msgList == null) {
-                msgList = new ArrayList<>();
-                localMessageList.set(msgList);
-            }
-            msgList.add(msg);
-        }
-        return this;
+        return appendLazily(() -> {
+            LogSettings settings = mLogConfig.snapshot();
+            return parseJsonMessage(settings, json, getSectionLimit(settings));
+        });
     }
 
 
@@ -91,27 +191,22 @@ public final class LogPrinter {
      * @return 返回日志对象
      */
     public LogPrinter appendXml(String xml) {
-        String msg = parseXmlMessage(xml);
-        if (!LogUtil.isEmpty(msg)) {
-            List<String> msgList = localMessageList.get();
-            if (msgList == null) {
-                msgList = new ArrayList<>();
-                localMessageList.set(msgList);
-            }
-            msgList.add(msg);
-        }
-        return this;
+        return appendLazily(() -> {
+            LogSettings settings = mLogConfig.snapshot();
+            return parseXmlMessage(settings, xml, getSectionLimit(settings));
+        });
     }
 
     public LogPrinter appendObject(Object obj) {
-        String msg = parseObjectMessage(obj);
-        if (!LogUtil.isEmpty(msg)) {
-            List<String> msgList = localMessageList.get();
-            if (msgList == null) {
-                msgList = new ArrayList<>();
-                localMessageList.set(msgList);
-            }
-            msgList.add(msg);
+        return appendLazily(() -> {
+            LogSettings settings = mLogConfig.snapshot();
+            return parseObjectMessage(settings, obj, getSectionLimit(settings));
+        });
+    }
+
+    private LogPrinter appendLazily(Supplier<String> supplier) {
+        if (supplier != null) {
+            editRecord().append(supplier);
         }
         return this;
     }
@@ -125,16 +220,56 @@ public final class LogPrinter {
     }
 
     public void error(Throwable throwable, String message, Object... args) {
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        //异常堆栈的拼接代价很高，日志不会输出时直接跳过
+        if (shouldLog(settings, record, LogLevel.ERROR)) {
+            logError(settings, record, throwable, message, args);
+        }
+    }
+
+    private void logError(LogSettings settings, LocalRecord record, Throwable throwable, String message, Object... args) {
         if (throwable != null && message != null) {
-            message += " : " + LogUtil.getStackTraceString(throwable);
+            //先格式化消息再拼接堆栈，整条日志只按maxRecordSize截断一次
+            StringBuilder builder = new StringBuilder(createMessage(settings, message, args)).append(" : ");
+            appendStackTrace(settings, builder, throwable);
+            logFormatted(settings, record, LogLevel.ERROR, builder.toString());
+            return;
         }
-        if (throwable != null && message == null) {
+        if (throwable != null) {
             message = throwable.toString();
         }
         if (message == null) {
             message = "No message/exception is set";
         }
-        log(LogLevel.ERROR, message, args);
+        logFormatted(settings, record, LogLevel.ERROR, LogUtil.truncate(createMessage(settings, message, args), settings.getMaxRecordSize()));
+    }
+
+    /**
+     * 开启堆栈合并时，同一堆栈在时间窗口内只在第一次输出完整内容，之后只输出编号、异常消息和次数
+     */
+    private void appendStackTrace(LogSettings settings, StringBuilder builder, Throwable throwable) {
+        int maxRecordSize = settings.getMaxRecordSize();
+        long windowMillis = settings.getStackTraceWindow();
+        long now = System.currentTimeMillis();
+        StackTraceCache.Trace trace = windowMillis > 0 ? stackTraceCache.get(throwable, now, windowMillis) : null;
+        if (trace == null) {
+            LogUtil.appendStackTrace(builder, throwable, maxRecordSize);
+            return;
+        }
+        long count = trace.record(now, windowMillis);
+        if (count == 1) {
+            builder.append("[trace ").append(trace.getId()).append("] ");
+            LogUtil.appendStackTrace(builder, throwable, maxRecordSize);
+            return;
+        }
+        builder.append(throwable).append(" [trace ").append(trace.getId()).append(", ").append(count)
+                .append(" times in ").append(windowMillis).append("ms, stack trace omitted]");
+        if (maxRecordSize > 0 && builder.length() > maxRecordSize) {
+            String text = builder.toString();
+            builder.setLength(0);
+            builder.append(LogUtil.truncate(text, maxRecordSize));
+        }
     }
 
     public void warn(String message, Object... args) {
@@ -145,8 +280,65 @@ public final class LogPrinter {
         log(LogLevel.INFO, message, args);
     }
 
+    public void debug(Supplier<String> supplier) {
+        log(LogLevel.DEBUG, supplier);
+    }
+
+    public void error(Supplier<String> supplier) {
+        log(LogLevel.ERROR, supplier);
+    }
+
+    public void error(Throwable throwable, Supplier<String> supplier) {
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (shouldLog(settings, record, LogLevel.ERROR)) {
+            logError(settings, record, throwable, supplier != null ? supplier.get() : null);
+        }
+    }
+
+    public void warn(Supplier<String> supplier) {
+        log(LogLevel.WARN, supplier);
+    }
+
+    public void info(Supplier<String> supplier) {
+        log(LogLevel.INFO, supplier);
+    }
+
     public void json(String json) {
-        debug(parseJsonMessage(json));
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (shouldLog(settings, record, LogLevel.DEBUG)) {
+            logFormatted(settings, record, LogLevel.DEBUG, parseJsonMessage(settings, json, settings.getMaxRecordSize()));
+        }
+    }
+
+    /**
+     * 只有这条日志最终会被输出时才调用supplier获取json内容
+     *
+     * @param supplier the json content
+     */
+    public void json(Supplier<String> supplier) {
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (shouldLog(settings, record, LogLevel.DEBUG)) {
+            logFormatted(settings, record, LogLevel.DEBUG, parseJsonMessage(settings, supplier != null ? supplier.get() : null, settings.getMaxRecordSize()));
+        }
+    }
+
+    public void xml(Supplier<String> supplier) {
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (shouldLog(settings, record, LogLevel.DEBUG)) {
+            logFormatted(settings, record, LogLevel.DEBUG, parseXmlMessage(settings, supplier != null ? supplier.get() : null, settings.getMaxRecordSize()));
+        }
+    }
+
+    public void object(Supplier<Object> supplier) {
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (shouldLog(settings, record, LogLevel.DEBUG)) {
+            logFormatted(settings, record, LogLevel.DEBUG, parseObjectMessage(settings, supplier != null ? supplier.get() : null, settings.getMaxRecordSize()));
+        }
     }
 
     /**
@@ -155,7 +347,11 @@ public final class LogPrinter {
      * @param xml the xml content
      */
     public void xml(String xml) {
-        debug(parseXmlMessage(xml));
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (shouldLog(settings, record, LogLevel.DEBUG)) {
+            logFormatted(settings, record, LogLevel.DEBUG, parseXmlMessage(settings, xml, settings.getMaxRecordSize()));
+        }
     }
 
     /**
@@ -164,103 +360,400 @@ public final class LogPrinter {
      * @param obj the xml content
      */
     public void object(Object obj) {
-        debug(parseObjectMessage(obj));
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (shouldLog(settings, record, LogLevel.DEBUG)) {
+            logFormatted(settings, record, LogLevel.DEBUG, parseObjectMessage(settings, obj, settings.getMaxRecordSize()));
+        }
+    }
+
+    /**
+     * @return 运行指标
+     */
+    public LogMetricsMXBean getMetrics() {
+        return metrics;
     }
 
     /**
-     * This method is synchronized in order to avoid messy of logs' order.
+     * 把运行指标注册到JMX，ObjectName为io.github.mavenreposs.component.log:type=LogMetrics,name=名称，
+     * 同名的已经注册时替换
+     *
+     * @param name 名称
+     */
+    public void registerMetrics(String name) {
+        metrics.register(name);
+    }
+
+    /**
+     * 输出还没有输出的重复日志汇总，等待异步队列中已提交的日志全部输出，并把二进制日志的缓冲区写入文件
+     */
+    public void flush() {
+        LogSettings settings = mLogConfig.snapshot();
+        if (settings.isThrottled()) {
+            reportSuppressed(settings, System.currentTimeMillis());
+        }
+        reportDuplicates(settings, duplicateFilter.flush(), settings.isPrintToFile());
+        AsyncDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher != null) {
+            dispatcher.flush();
+        }
+        if (settings.getBinaryLogger() != null) {
+            settings.getBinaryLogger().flush();
+        }
+    }
+
+    /**
+     * 判断当前线程上的下一条日志是否会被至少一个日志输出工具输出
+     *
+     * @param logType 日志等级
+     * @return 日志会被输出时返回true
+     */
+    public boolean isLoggable(int logType) {
+        LogSettings settings = mLogConfig.snapshot();
+        return isLoggable(settings, record(settings), logType);
+    }
+
+    private boolean isLoggable(LogSettings settings, LocalRecord record, int logType) {
+        return isLoggable(settings, record.isPrintToFile(settings), logType);
+    }
+
+    private boolean isLoggable(LogSettings settings, boolean isPrintToFile, int logType) {
+        if (logType < settings.getLogLevel()) {
+            return false;
+        }
+        for (LoggerInterface loggerInterface : settings.getLoggers()) {
+            if (PrinterTemplate.accepts(loggerInterface, isPrintToFile, logType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void log(int logType, Supplier<String> supplier) {
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (shouldLog(settings, record, logType)) {
+            logFormatted(settings, record, logType, LogUtil.truncate(supplier != null ? supplier.get() : null, settings.getMaxRecordSize()));
+        }
+    }
+
+    /**
+     * 在调用线程上收集日志内容，同步模式下直接输出，异步模式下交给分发线程输出
      */
-    private synchronized void log(int logType, String msg, Object... args) {
-        if (logType < mLogConfig.getLogLevel()) {
+    private void log(int logType, String msg, Object... args) {
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        if (!shouldLog(settings, record, logType)) {
             return;
         }
-        String tag = getTag();
-        boolean isPrintToFile = getIsPrintToFile();
-        if (mLogConfig.isShowThreadInfo()) {
-            tag += "[" + Thread.currentThread().getName() + "]";
+        BinaryFileLogger binaryLogger = settings.getBinaryLogger();
+        //二进制日志也是日志文件，不需要输出到文件时按文本交给其它输出工具
+        if (binaryLogger != null && record.isPrintToFile(settings) && settings.isBinaryTag(record.getTag(settings))) {
+            logBinary(settings, record, binaryLogger, logType, msg, args);
+        } else {
+            logFormatted(settings, record, logType, LogUtil.truncate(createMessage(settings, msg, args), settings.getMaxRecordSize()));
+        }
+    }
+
+    /**
+     * 判断这条日志是否输出，会被过滤、限流或采样丢弃时清除当前线程上为这条日志设置的内容
+     * <p>
+     * 与{@link #isLoggable(int)}不同，这里会计入限流和采样的计数，每条日志只能调用一次
+     * </p>
+     */
+    private boolean shouldLog(LogSettings settings, LocalRecord record, int logType) {
+        if (!isLoggable(settings, record, logType) || (settings.isThrottled() && !acquire(settings, record, logType))) {
+            record.reset();
+            release(settings);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 按Tag或调用位置计数，上一个窗口有日志被丢弃时先输出一条汇总日志，
+     * 并顺带为其它已经到期的窗口输出汇总
+     */
+    private boolean acquire(LogSettings settings, LocalRecord record, int logType) {
+        Object key;
+        if (settings.isRateLimitByCallSite()) {
+            StackTraceElement[] frames = PrinterTemplate.captureCallerFrames(1);
+            key = frames.length > 0 ? frames[0] : LogConfig.DEFAULT_TAG;
+        } else {
+            key = record.getTag(settings);
+        }
+        LogThrottle.Window window = throttle.getWindow(key);
+        long now = System.currentTimeMillis();
+        long suppressed = window.roll(now, settings.getRateLimitWindow());
+        if (suppressed > 0 && isLoggable(settings, record, LogLevel.WARN)) {
+            String plainTag = record.getTag(settings);
+            String tag = settings.isShowThreadInfo() ? record.getThreadTag(plainTag) : plainTag;
+            dispatch(new LogEvent(LogLevel.WARN, tag, plainTag, getSuppressedMessage(settings, key, suppressed), null, null,
+                    record.isPrintToFile(settings)), settings);
+        }
+        if (throttle.shouldSweep(now, settings.getRateLimitWindow())) {
+            reportSuppressed(settings, now);
         }
-        String message = createMessage(msg, args);
+        return throttle.acquire(settings, logType, window);
+    }
+
+    /**
+     * 为所有已经到期的窗口输出汇总日志，Tag或调用位置不再输出日志时也能得到汇总
+     */
+    private void reportSuppressed(LogSettings settings, long now) {
+        throttle.sweep(now, settings.getRateLimitWindow(), (key, suppressed) -> {
+            if (isLoggable(settings, settings.isPrintToFile(), LogLevel.WARN)) {
+                String tag = key instanceof String ? (String) key : settings.getTag();
+                dispatch(new LogEvent(LogLevel.WARN, tag, getSuppressedMessage(settings, key, suppressed), null, null,
+                        settings.isPrintToFile()), settings);
+            }
+        });
+    }
+
+    private static String getSuppressedMessage(LogSettings settings, Object key, long suppressed) {
+        return suppressed + " log records from " + key + " were suppressed in the last "
+                + settings.getRateLimitWindow() + "ms";
+    }
+
+    /**
+     * 只记录消息模板、参数和方法栈，不格式化也不渲染
+     */
+    private void logBinary(LogSettings settings, LocalRecord record, BinaryFileLogger binaryLogger, int logType,
+                           String msg, Object... args) {
+        //Tag和线程名分开保存，Tag的字典不会因为线程数量增长
+        String thread = settings.isShowThreadInfo() ? LogEvent.threadName(Thread.currentThread()) : null;
+        //方法栈与文本日志一样在调用线程上截取，还原时输出相同的方法栈
+        StackTraceElement[] callerFrames = PrinterTemplate.captureCallerFrames(record.getMethodCount(settings));
+        binaryLogger.write(logType, record.getTag(settings), thread, callerFrames, System.currentTimeMillis(), msg,
+                settings.isPlaceholderFormat(), args, takeAppendMsgList(settings, record));
+    }
 
+    /**
+     * @param message 已经格式化并按长度上限截断过的消息
+     */
+    private void logFormatted(LogSettings settings, LocalRecord record, int logType, String message) {
+        String plainTag = record.getTag(settings);
+        boolean isPrintToFile = record.isPrintToFile(settings);
+        int methodCount = record.getMethodCount(settings);
+        List<String> appendMsgList = takeAppendMsgList(settings, record);
+        if (methodCount < 0) {
+            throw new IllegalStateException("methodCount cannot be negative");
+        }
 
         if (LogUtil.isEmpty(message)) {
             message = "Empty/NULL log message";
         }
 
-        new PrinterTemplate(this, logType, tag, message, isPrintToFile).println();
+        if (settings.getDuplicateMaxMillis() > 0) {
+            //与上一条日志重复时只计数，不截取方法栈也不渲染
+            DuplicateFilter.Summary summary = duplicateFilter.filter(logType, plainTag, message, appendMsgList,
+                    System.currentTimeMillis(), settings.getDuplicateMaxMillis());
+            if (summary == null) {
+                return;
+            }
+            reportDuplicates(settings, summary, isPrintToFile);
+        }
+
+        String tag = settings.isShowThreadInfo() ? record.getThreadTag(plainTag) : plainTag;
+        StackTraceElement[] callerFrames = PrinterTemplate.captureCallerFrames(methodCount);
+        dispatch(new LogEvent(logType, tag, plainTag, message, appendMsgList, callerFrames, isPrintToFile), settings);
+    }
+
+    /**
+     * 取出当前线程上正在组装的日志状态，生成一条没有经过级别和长度检查的日志，用于兼容旧的模板构造方法
+     */
+    LogEvent takeEvent(int logType, String tag, String message, boolean isPrintToFile) {
+        LogSettings settings = mLogConfig.snapshot();
+        LocalRecord record = record(settings);
+        int methodCount = record.getMethodCount(settings);
+        List<String> appendMsgList = takeAppendMsgList(settings, record);
+        StackTraceElement[] callerFrames = PrinterTemplate.captureCallerFrames(methodCount);
+        return new LogEvent(logType, tag, message, appendMsgList, callerFrames, isPrintToFile);
+    }
+
+    /**
+     * 取出这条日志的拼接内容，之后当前线程上不再有这条日志的状态
+     */
+    private List<String> takeAppendMsgList(LogSettings settings, LocalRecord record) {
+        //先释放再生成拼接内容，supplier中输出的日志使用新的LocalRecord
+        release(settings);
+        return record.takeAppendMsgList();
+    }
+
+    /**
+     * @return 当前线程上正在组装的日志，适配虚拟线程且没有设置内容时返回只读的{@link LocalRecord#EMPTY}
+     */
+    private LocalRecord record(LogSettings settings) {
+        if (settings.isVirtualThreads()) {
+            LocalRecord record = pendingRecords.get(Thread.currentThread());
+            return record != null ? record : LocalRecord.EMPTY;
+        }
+        return localRecord.get();
+    }
+
+    /**
+     * @return 当前线程上正在组装的日志，用于设置这条日志的内容
+     */
+    private LocalRecord editRecord() {
+        if (!mLogConfig.snapshot().isVirtualThreads()) {
+            return localRecord.get();
+        }
+        Thread thread = Thread.currentThread();
+        LocalRecord record = pendingRecords.get(thread);
+        if (record == null) {
+            //设置了内容但没有输出日志就结束的线程不会再释放，新建时顺便清理
+            if (pendingRecords.size() >= pendingPurgeSize) {
+                pendingRecords.keySet().removeIf(t -> !t.isAlive());
+                pendingPurgeSize = Math.max(MAX_PENDING_RECORDS, pendingRecords.size() * 2);
+            }
+            record = new LocalRecord();
+            pendingRecords.put(thread, record);
+        }
+        return record;
+    }
 
+    /**
+     * 适配虚拟线程时，一条日志结束后不保留这条日志的状态
+     */
+    private void release(LogSettings settings) {
+        if (settings.isVirtualThreads()) {
+            pendingRecords.remove(Thread.currentThread());
+        }
     }
 
     /**
-     * @return the appropriate tag based on local or global
+     * 重复持续到最长时间后由后台线程输出汇总，使用输出时的配置
      */
-    private String getTag() {
-        String tag = localTag.get();
-        if (!LogUtil.isEmpty(tag)) {
-            localTag.remove();
-            return tag;
+    private void reportExpiredDuplicates(DuplicateFilter.Summary summary) {
+        LogSettings settings = mLogConfig.snapshot();
+        reportDuplicates(settings, summary, settings.isPrintToFile());
+    }
+
+    private void reportDuplicates(LogSettings settings, DuplicateFilter.Summary summary, boolean isPrintToFile) {
+        if (summary.repeated > 0) {
+            dispatch(new LogEvent(summary.logType, summary.tag, summary.getMessage(), null, null, isPrintToFile), settings);
         }
-        tag = mLogConfig.getTag();
-        if (!LogUtil.isEmpty(tag)) {
-            return tag;
+    }
+
+    private void dispatch(LogEvent event, LogSettings settings) {
+        if (settings.isAsync()) {
+            getAsyncDispatcher(settings).publish(event);
         } else {
-            return LogConfig.DEFAULT_TAG;
+            print(event, settings);
+        }
+    }
+
+    /**
+     * 异步模式下在分发线程上输出，使用输出时的配置
+     */
+    private void print(LogEvent event) {
+        print(event, mLogConfig.snapshot());
+    }
+
+    /**
+     * This method is locked in order to avoid messy of logs' order.
+     */
+    private void print(LogEvent event, LogSettings settings) {
+        long start = System.nanoTime();
+        outputLock.lock();
+        try {
+            metrics.recordLockWait(System.nanoTime() - start);
+            template.println(settings, event, metrics);
+        } finally {
+            outputLock.unlock();
         }
     }
 
-    private boolean getIsPrintToFile() {
-        Boolean printToFile = localIsPrintToFile.get();
-        if (printToFile != null) {
-            localIsPrintToFile.remove();
-            return printToFile;
+    private AsyncDispatcher getAsyncDispatcher(LogSettings settings) {
+        AsyncDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher == null) {
+            outputLock.lock();
+            try {
+                dispatcher = asyncDispatcher;
+                if (dispatcher == null) {
+                    dispatcher = new AsyncDispatcher(settings.getAsyncCapacity(), settings.isDropWhenFull(), this::print);
+                    asyncDispatcher = dispatcher;
+                }
+            } finally {
+                outputLock.unlock();
+            }
         }
-        return this.mLogConfig.isPrintToFile();
+        return dispatcher;
     }
 
-    private String createMessage(String message, Object... args) {
-        return args.length == 0 ? message : String.format(message, args);
+    /**
+     * @return 每段拼接内容的长度上限，同时不超过单条日志的长度上限
+     */
+    private int getSectionLimit(LogSettings settings) {
+        int section = settings.getMaxSectionSize();
+        int record = settings.getMaxRecordSize();
+        if (section <= 0 || record <= 0) {
+            return Math.max(section, record);
+        }
+        return Math.min(section, record);
+    }
+
+    private String createMessage(LogSettings settings, String message, Object... args) {
+        if (args.length == 0) {
+            return message;
+        }
+        MessageFormatter formatter = settings.isPlaceholderFormat() ? MessageFormatter.BRACES : MessageFormatter.PRINTF;
+        return formatter.format(!settings.isVirtualThreads(), message, args);
     }
 
     /**
      * 格式化xml字符串
      *
-     * @param xml XML字符串
+     * @param xml       XML字符串
+     * @param maxLength 长度上限
      * @return 消息内容
      */
-    private String parseXmlMessage(String xml) {
-        if (LogLevel.DEBUG < mLogConfig.getLogLevel()) {
+    private String parseXmlMessage(LogSettings settings, String xml, int maxLength) {
+        if (LogLevel.DEBUG < settings.getLogLevel()) {
             //因为对象输出是以debug级别输出的，所以如果日志级别配置高于DEBUG等级，则不会输出，所以也不需要进行字符串格式化
             return null;
         }
 
-        return new XmlMessager(xml).getParseMessage();
+        long start = System.nanoTime();
+        String message = new XmlMessager(xml, settings.isXmlTransformer(), !settings.isVirtualThreads()).getParseMessage(maxLength);
+        metrics.recordParse(LogMetrics.PARSE_XML, System.nanoTime() - start);
+        return message;
     }
 
     /**
      * 格式化json字符串
      *
-     * @param json JSON字符串
+     * @param json      JSON字符串
+     * @param maxLength 长度上限
      * @return 消息内容
      */
-    private String parseJsonMessage(String json) {
-        if (LogLevel.DEBUG < mLogConfig.getLogLevel()) {
+    private String parseJsonMessage(LogSettings settings, String json, int maxLength) {
+        if (LogLevel.DEBUG < settings.getLogLevel()) {
             //因为对象输出是以debug级别输出的，所以如果日志级别配置高于DEBUG等级，则不会输出，所以也不需要进行字符串格式化
             return null;
         }
-        return new JsonMessager(json).getParseMessage();
+        long start = System.nanoTime();
+        String message = new JsonMessager(json).getParseMessage(maxLength);
+        metrics.recordParse(LogMetrics.PARSE_JSON, System.nanoTime() - start);
+        return message;
     }
 
     /**
      * 格式化对象
      *
-     * @param obj 对象
+     * @param obj       对象
+     * @param maxLength 长度上限
      * @return 消息内容
      */
-    private String parseObjectMessage(Object obj) {
-        if (LogLevel.DEBUG < mLogConfig.getLogLevel()) {
+    private String parseObjectMessage(LogSettings settings, Object obj, int maxLength) {
+        if (LogLevel.DEBUG < settings.getLogLevel()) {
             //因为对象输出是以debug级别输出的，所以如果日志级别配置高于DEBUG等级，则不会输出，所以也不需要进行字符串格式化
             return null;
         }
-        return new ObjectMessager(obj).getParseMessage();
+        long start = System.nanoTime();
+        String message = new ObjectMessager(obj, settings.getObjectMaxDepth(), settings.getObjectMaxElements()).getParseMessage(maxLength);
+        metrics.recordParse(LogMetrics.PARSE_OBJECT, System.nanoTime() - start);
+        return message;
     }
 
 }
@@ -0,0 +1,215 @@
+package io.github.mavenreposs.component.log;
+
+import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+import io.github.mavenreposs.component.log.logger.BinaryFileLogger;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 日志配置的不可变快照
+ * <p>
+ * 由{@link LogConfig}在每次修改后整体替换，输出一条日志时只读取一次，
+ * 同一条日志的过滤、格式化和输出使用同一份配置，不需要加锁。
+ * </p>
+ */
+final class LogSettings {
+
+    private final String tag;
+
+    private final int methodCount;
+
+    private final boolean showThreadInfo;
+
+    private final boolean printToFile;
+
+    private final boolean placeholderFormat;
+
+    private final boolean xmlTransformer;
+
+    private final int objectMaxDepth;
+
+    private final int objectMaxElements;
+
+    private final int maxRecordSize;
+
+    private final int maxSectionSize;
+
+    private final int rateLimit;
+
+    private final long rateLimitWindow;
+
+    private final boolean rateLimitByCallSite;
+
+    private final int[] sampling;
+
+    //是否开启了限流或采样
+    private final boolean throttled;
+
+    private final long duplicateMaxMillis;
+
+    private final long stackTraceWindow;
+
+    private final BinaryFileLogger binaryLogger;
+
+    private final Set<String> binaryTags;
+
+    private final boolean async;
+
+    private final int asyncCapacity;
+
+    private final boolean dropWhenFull;
+
+    private final boolean virtualThreads;
+
+    private final List<LoggerInterface> loggers;
+
+    private final int logLevel;
+
+    LogSettings(String tag, int methodCount, boolean showThreadInfo, boolean printToFile, boolean placeholderFormat,
+                boolean xmlTransformer, int objectMaxDepth, int objectMaxElements, int maxRecordSize,
+                int maxSectionSize, int rateLimit, long rateLimitWindow, boolean rateLimitByCallSite, int[] sampling,
+                long duplicateMaxMillis, long stackTraceWindow, BinaryFileLogger binaryLogger, Set<String> binaryTags,
+                boolean async, int asyncCapacity, boolean dropWhenFull, boolean virtualThreads,
+                List<LoggerInterface> loggers, int logLevel) {
+        this.tag = tag;
+        this.methodCount = methodCount;
+        this.showThreadInfo = showThreadInfo;
+        this.printToFile = printToFile;
+        this.placeholderFormat = placeholderFormat;
+        this.xmlTransformer = xmlTransformer;
+        this.objectMaxDepth = objectMaxDepth;
+        this.objectMaxElements = objectMaxElements;
+        this.maxRecordSize = maxRecordSize;
+        this.maxSectionSize = maxSectionSize;
+        this.rateLimit = rateLimit;
+        this.rateLimitWindow = rateLimitWindow;
+        this.rateLimitByCallSite = rateLimitByCallSite;
+        this.sampling = sampling.clone();
+        this.duplicateMaxMillis = duplicateMaxMillis;
+        this.stackTraceWindow = stackTraceWindow;
+        this.binaryLogger = binaryLogger;
+        this.binaryTags = Set.copyOf(binaryTags);
+        this.async = async;
+        this.asyncCapacity = asyncCapacity;
+        this.dropWhenFull = dropWhenFull;
+        this.virtualThreads = virtualThreads;
+        this.loggers = List.copyOf(loggers);
+        this.logLevel = logLevel;
+
+        boolean sampled = false;
+        for (int everyN : sampling) {
+            if (everyN > 1) {
+                sampled = true;
+                break;
+            }
+        }
+        this.throttled = rateLimit > 0 || sampled;
+    }
+
+    String getTag() {
+        return tag;
+    }
+
+    int getMethodCount() {
+        return methodCount;
+    }
+
+    boolean isShowThreadInfo() {
+        return showThreadInfo;
+    }
+
+    boolean isPrintToFile() {
+        return printToFile;
+    }
+
+    boolean isPlaceholderFormat() {
+        return placeholderFormat;
+    }
+
+    boolean isXmlTransformer() {
+        return xmlTransformer;
+    }
+
+    int getObjectMaxDepth() {
+        return objectMaxDepth;
+    }
+
+    int getObjectMaxElements() {
+        return objectMaxElements;
+    }
+
+    int getMaxRecordSize() {
+        return maxRecordSize;
+    }
+
+    int getMaxSectionSize() {
+        return maxSectionSize;
+    }
+
+    int getRateLimit() {
+        return rateLimit;
+    }
+
+    long getRateLimitWindow() {
+        return rateLimitWindow;
+    }
+
+    boolean isRateLimitByCallSite() {
+        return rateLimitByCallSite;
+    }
+
+    int getSampling(int logLevel) {
+        return sampling[logLevel];
+    }
+
+    /**
+     * @return 是否开启了限流或采样
+     */
+    boolean isThrottled() {
+        return throttled;
+    }
+
+    long getDuplicateMaxMillis() {
+        return duplicateMaxMillis;
+    }
+
+    long getStackTraceWindow() {
+        return stackTraceWindow;
+    }
+
+    BinaryFileLogger getBinaryLogger() {
+        return binaryLogger;
+    }
+
+    boolean isBinaryTag(String tag) {
+        return binaryTags.isEmpty() || binaryTags.contains(tag);
+    }
+
+    boolean isAsync() {
+        return async;
+    }
+
+    int getAsyncCapacity() {
+        return asyncCapacity;
+    }
+
+    boolean isDropWhenFull() {
+        return dropWhenFull;
+    }
+
+    boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return 不可修改的日志输出工具列表
+     */
+    List<LoggerInterface> getLoggers() {
+        return loggers;
+    }
+
+    int getLogLevel() {
+        return logLevel;
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 日志限流和采样
+ * <p>
+ * 在格式化消息之前判断一条日志是否输出，全程只使用CAS计数，不加锁。
+ * 采样按日志级别每N条输出1条；限流按Tag或调用位置分别计数，每个时间窗口内最多输出固定条数。
+ * 被丢弃的日志按Tag或调用位置累计，窗口结束后由调用方输出一条汇总日志：同一个Tag或调用位置的下一条日志到来时，
+ * 或者任意日志到来时顺带检查所有窗口（每个时间窗口最多检查一次），不再输出日志的Tag也能得到汇总。
+ * </p>
+ */
+final class LogThrottle {
+
+    //最多单独计数的Tag或调用位置数量，超出后共用一个计数窗口
+    private static final int MAX_KEYS = 4096;
+
+    //超出MAX_KEYS后共用的计数窗口在汇总日志中的名称
+    static final String OVERFLOW_KEY = "other keys";
+
+    private final ConcurrentHashMap<Object, Window> windows = new ConcurrentHashMap<>();
+
+    private final Window overflowWindow = new Window();
+
+    //上一次检查所有窗口的时间
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    //按日志级别采样的计数
+    private final AtomicLong[] sampleCounters = new AtomicLong[LogLevel.NONE + 1];
+
+    LogThrottle() {
+        for (int i = 0; i < sampleCounters.length; i++) {
+            sampleCounters[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * @param key 计数的Tag或调用位置
+     * @return 计数窗口
+     */
+    Window getWindow(Object key) {
+        Window window = windows.get(key);
+        if (window == null) {
+            if (windows.size() >= MAX_KEYS) {
+                return overflowWindow;
+            }
+            window = windows.computeIfAbsent(key, k -> new Window());
+        }
+        return window;
+    }
+
+    /**
+     * 先按级别采样，再按窗口限流
+     *
+     * @param config  日志配置
+     * @param logType 日志级别
+     * @param window  计数窗口
+     * @return 这条日志是否输出
+     */
+    boolean acquire(LogSettings config, int logType, Window window) {
+        int sampling = config.getSampling(logType);
+        if (sampling > 1 && sampleCounters[logType].getAndIncrement() % sampling != 0) {
+            window.suppressed.incrementAndGet();
+            return false;
+        }
+        int rateLimit = config.getRateLimit();
+        if (rateLimit > 0 && window.count.incrementAndGet() > rateLimit) {
+            window.suppressed.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 距上一次检查所有窗口已经超过一个时间窗口时返回true，同一时间只有一个线程得到true
+     */
+    boolean shouldSweep(long now, long windowMillis) {
+        long last = lastSweep.get();
+        return now - last >= windowMillis && lastSweep.compareAndSet(last, now);
+    }
+
+    /**
+     * 结束所有已经到期的窗口
+     *
+     * @param reporter 接收窗口的Tag或调用位置，以及其中被丢弃的日志数量
+     */
+    void sweep(long now, long windowMillis, BiConsumer<Object, Long> reporter) {
+        for (Map.Entry<Object, Window> entry : windows.entrySet()) {
+            long suppressed = entry.getValue().roll(now, windowMillis);
+            if (suppressed > 0) {
+                reporter.accept(entry.getKey(), suppressed);
+            }
+        }
+        long suppressed = overflowWindow.roll(now, windowMillis);
+        if (suppressed > 0) {
+            reporter.accept(OVERFLOW_KEY, suppressed);
+        }
+    }
+
+    /**
+     * 固定时间窗口的计数，窗口结束后由第一个发现的线程通过CAS开始新窗口
+     */
+    static final class Window {
+
+        private final AtomicLong start = new AtomicLong();
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong suppressed = new AtomicLong();
+
+        /**
+         * @return 开始新窗口时返回上一个窗口中被丢弃的日志数量，否则返回0
+         */
+        long roll(long now, long windowMillis) {
+            long windowStart = start.get();
+            if (now - windowStart < windowMillis || !start.compareAndSet(windowStart, now)) {
+                return 0;
+            }
+            count.set(0);
+            return suppressed.getAndSet(0);
+        }
+    }
+}
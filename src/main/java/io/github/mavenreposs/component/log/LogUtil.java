@@ -4,6 +4,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.net.UnknownHostException;
 
 public class LogUtil {
@@ -17,31 +18,178 @@ public class LogUtil {
         return str == null || str.length() == 0;
     }
 
+    /**
+     * 超过长度上限时截断，并注明原始长度
+     *
+     * @param str       内容
+     * @param maxLength 长度上限（字符数），小于等于0时不限制
+     * @return 截断后的内容
+     */
+    public static String truncate(@Nullable String str, int maxLength) {
+        if (str == null || maxLength <= 0 || str.length() <= maxLength) {
+            return str;
+        }
+        StringBuilder builder = new StringBuilder(maxLength + 64).append(str, 0, maxLength);
+        appendTruncatedMarker(builder, str.length());
+        return builder.toString();
+    }
+
+    /**
+     * 在截断的内容后追加截断说明
+     *
+     * @param builder      已截断的内容
+     * @param originalSize 原始长度（字符数），小于0表示原始长度未知
+     */
+    public static void appendTruncatedMarker(StringBuilder builder, long originalSize) {
+        int length = builder.length();
+        builder.append("\n... [truncated at ").append(length).append(" chars");
+        if (originalSize >= 0) {
+            builder.append(", original size ").append(originalSize).append(" chars");
+        }
+        builder.append(']');
+    }
+
+    /**
+     * 按日志组件的规则格式化消息
+     *
+     * @param message     消息模板
+     * @param placeholder true使用{}占位符（同时兼容%s），false按String.format格式化
+     * @param args        参数
+     * @return 格式化后的消息
+     */
+    public static String format(String message, boolean placeholder, Object... args) {
+        if (args.length == 0) {
+            return message;
+        }
+        return (placeholder ? MessageFormatter.BRACES : MessageFormatter.PRINTF).format(message, args);
+    }
+
     /**
      * Handy function to get a loggable stack trace from a Throwable
      * @param tr An exception to log
      * @return String
      */
     public static String getStackTraceString(Throwable tr) {
+        return getStackTraceString(tr, 0);
+    }
+
+    /**
+     * 获取异常堆栈，超过长度上限的部分不再写入
+     *
+     * @param tr        An exception to log
+     * @param maxLength 长度上限（字符数），小于等于0时不限制
+     * @return String
+     */
+    public static String getStackTraceString(Throwable tr, int maxLength) {
         if (tr == null) {
             return "";
         }
 
-        // This is to reduce the amount of log spew that apps do in the non-error
-        // condition of the network being unavailable.
+        if (isUnknownHost(tr)) {
+            return "";
+        }
+
+        if (maxLength <= 0) {
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+            tr.printStackTrace(pw);
+            pw.flush();
+            return sw.toString();
+        }
+        LimitedWriter lw = new LimitedWriter(maxLength);
+        PrintWriter pw = new PrintWriter(lw);
+        tr.printStackTrace(pw);
+        pw.flush();
+        if (lw.written > maxLength) {
+            appendTruncatedMarker(lw.builder, lw.written);
+        }
+        return lw.builder.toString();
+    }
+
+    /**
+     * 把异常堆栈追加到已有内容之后，整段内容超过长度上限时只截断一次，截断说明中的长度按整段内容计算
+     *
+     * @param builder   已有内容，例如日志消息
+     * @param tr        An exception to log
+     * @param maxLength 整段内容的长度上限（字符数），小于等于0时不限制
+     */
+    public static void appendStackTrace(StringBuilder builder, Throwable tr, int maxLength) {
+        if (maxLength <= 0) {
+            builder.append(getStackTraceString(tr));
+            return;
+        }
+        int length = builder.length();
+        LimitedWriter lw = new LimitedWriter(Math.max(0, maxLength - length));
+        if (tr != null && !isUnknownHost(tr)) {
+            PrintWriter pw = new PrintWriter(lw);
+            tr.printStackTrace(pw);
+            pw.flush();
+        }
+        long originalSize = length + lw.written;
+        if (originalSize <= maxLength) {
+            builder.append(lw.builder);
+            return;
+        }
+        builder.setLength(Math.min(length, maxLength));
+        builder.append(lw.builder);
+        appendTruncatedMarker(builder, originalSize);
+    }
+
+    /**
+     * This is to reduce the amount of log spew that apps do in the non-error
+     * condition of the network being unavailable.
+     */
+    private static boolean isUnknownHost(Throwable tr) {
         Throwable t = tr;
         while (t != null) {
             if (t instanceof UnknownHostException) {
-                return "";
+                return true;
             }
             t = t.getCause();
         }
+        return false;
+    }
 
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        tr.printStackTrace(pw);
-        pw.flush();
-        return sw.toString();
+    /**
+     * 超过上限后只统计长度，不再保存内容
+     */
+    private static class LimitedWriter extends Writer {
+
+        private final StringBuilder builder = new StringBuilder();
+
+        private final int maxLength;
+
+        private long written;
+
+        LimitedWriter(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            int remaining = (int) Math.max(0, maxLength - written);
+            if (remaining > 0) {
+                builder.append(cbuf, off, Math.min(len, remaining));
+            }
+            written += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            int remaining = (int) Math.max(0, maxLength - written);
+            if (remaining > 0) {
+                builder.append(str, off, off + Math.min(len, remaining));
+            }
+            written += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
     }
 
 }
@@ -0,0 +1,213 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formattable;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 消息格式化
+ * <p>
+ * 每个格式字符串只解析一次，解析结果（占位符之间的文本片段）缓存起来，
+ * 之后直接把参数拼接到当前线程复用的StringBuilder中，不需要正则匹配，也不会创建Formatter。
+ * 适配虚拟线程时每次使用新的StringBuilder，不在线程上保留状态。
+ * </p>
+ * <p>
+ * {@link #PRINTF}只处理%s和%%，兼容String.format的输出；{@link #BRACES}额外支持{}占位符。
+ * 遇到其它格式说明符（例如%d、%.2f）时回退到String.format。
+ * </p>
+ */
+final class MessageFormatter {
+
+    /**
+     * String.format兼容模式
+     */
+    static final MessageFormatter PRINTF = new MessageFormatter(false);
+
+    /**
+     * {}占位符模式，同时兼容%s
+     */
+    static final MessageFormatter BRACES = new MessageFormatter(true);
+
+    //缓存的格式字符串数量上限，超过后新的格式字符串不再缓存
+    private static final int MAX_CACHED_PLANS = 2048;
+
+    //复用的StringBuilder超过该容量后丢弃，避免一条超长日志长期占用内存
+    private static final int MAX_REUSED_CAPACITY = 16 * 1024;
+
+    //需要回退到String.format的格式字符串
+    private static final Plan FALLBACK = new Plan(null);
+
+    private static final ThreadLocal<LocalBuilder> localBuilder = ThreadLocal.withInitial(LocalBuilder::new);
+
+    private final boolean braces;
+
+    private final ConcurrentHashMap<String, Plan> plans = new ConcurrentHashMap<>();
+
+    private MessageFormatter(boolean braces) {
+        this.braces = braces;
+    }
+
+    String format(String template, Object... args) {
+        return format(true, template, args);
+    }
+
+    /**
+     * @param reuseBuilder 是否复用当前线程的StringBuilder，适配虚拟线程时为false
+     * @param template     格式字符串
+     * @param args         参数
+     * @return 格式化后的消息
+     */
+    String format(boolean reuseBuilder, String template, Object... args) {
+        if (template == null) {
+            return null;
+        }
+        Plan plan = getPlan(template);
+        //参数不足时交给String.format抛出和原来一致的异常
+        if (plan == FALLBACK || (!braces && (args.length < plan.placeholders() || hasFormattable(args)))) {
+            return String.format(template, args);
+        }
+
+        LocalBuilder local = reuseBuilder ? localBuilder.get() : null;
+        //参数的toString中可能再次输出日志，此时不能复用正在使用的StringBuilder
+        boolean reused = local != null && !local.inUse;
+        StringBuilder builder = reused ? local.builder : new StringBuilder(template.length() + 16 * args.length);
+        if (reused) {
+            local.inUse = true;
+        }
+        try {
+            builder.setLength(0);
+            String[] fragments = plan.fragments;
+            builder.append(fragments[0]);
+            for (int i = 1; i < fragments.length; i++) {
+                if (i - 1 < args.length) {
+                    if (braces) {
+                        appendArg(builder, args[i - 1]);
+                    } else {
+                        builder.append(args[i - 1]);
+                    }
+                } else {
+                    builder.append("{}");
+                }
+                builder.append(fragments[i]);
+            }
+            return builder.toString();
+        } finally {
+            if (reused) {
+                local.inUse = false;
+                if (builder.capacity() > MAX_REUSED_CAPACITY) {
+                    local.builder = new StringBuilder(LocalBuilder.INITIAL_CAPACITY);
+                }
+            }
+        }
+    }
+
+    private Plan getPlan(String template) {
+        Plan plan = plans.get(template);
+        if (plan == null) {
+            plan = parse(template);
+            if (plans.size() < MAX_CACHED_PLANS) {
+                plans.putIfAbsent(template, plan);
+            }
+        }
+        return plan;
+    }
+
+    private Plan parse(String template) {
+        List<String> fragments = new ArrayList<>();
+        StringBuilder fragment = new StringBuilder(template.length());
+        boolean hasBraces = false;
+        boolean hasOtherSpecifier = false;
+        int length = template.length();
+        for (int i = 0; i < length; i++) {
+            char c = template.charAt(i);
+            char next = i + 1 < length ? template.charAt(i + 1) : 0;
+            if (braces && c == '{' && next == '}') {
+                hasBraces = true;
+                fragments.add(fragment.toString());
+                fragment.setLength(0);
+                i++;
+            } else if (c == '%' && next == 's') {
+                fragments.add(fragment.toString());
+                fragment.setLength(0);
+                i++;
+            } else if (c == '%' && next == '%') {
+                fragment.append('%');
+                i++;
+            } else {
+                if (c == '%') {
+                    hasOtherSpecifier = true;
+                }
+                fragment.append(c);
+            }
+        }
+        //纯printf风格的格式字符串（含%d等）交给String.format
+        if (hasOtherSpecifier && !hasBraces) {
+            return FALLBACK;
+        }
+        fragments.add(fragment.toString());
+        return new Plan(fragments.toArray(new String[0]));
+    }
+
+    private static boolean hasFormattable(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof Formattable) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {}模式下数组按内容输出
+     */
+    private static void appendArg(StringBuilder builder, Object arg) {
+        if (arg == null || !arg.getClass().isArray()) {
+            builder.append(arg);
+        } else if (arg instanceof Object[]) {
+            builder.append(Arrays.deepToString((Object[]) arg));
+        } else if (arg instanceof int[]) {
+            builder.append(Arrays.toString((int[]) arg));
+        } else if (arg instanceof long[]) {
+            builder.append(Arrays.toString((long[]) arg));
+        } else if (arg instanceof byte[]) {
+            builder.append(Arrays.toString((byte[]) arg));
+        } else if (arg instanceof char[]) {
+            builder.append(Arrays.toString((char[]) arg));
+        } else if (arg instanceof short[]) {
+            builder.append(Arrays.toString((short[]) arg));
+        } else if (arg instanceof boolean[]) {
+            builder.append(Arrays.toString((boolean[]) arg));
+        } else if (arg instanceof float[]) {
+            builder.append(Arrays.toString((float[]) arg));
+        } else {
+            builder.append(Arrays.toString((double[]) arg));
+        }
+    }
+
+    /**
+     * 解析后的格式字符串，占位符把格式字符串分成placeholders + 1个文本片段
+     */
+    private static final class Plan {
+
+        private final String[] fragments;
+
+        Plan(String[] fragments) {
+            this.fragments = fragments;
+        }
+
+        int placeholders() {
+            return fragments.length - 1;
+        }
+    }
+
+    private static final class LocalBuilder {
+
+        static final int INITIAL_CAPACITY = 256;
+
+        StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+
+        boolean inUse;
+    }
+}
@@ -1,17 +1,11 @@
 package io.github.mavenreposs.component.log;
 
 import io.github.mavenreposs.component.log.contracts.LoggerInterface;
-import io.github.mavenreposs.component.log.logger.FileLogger;
 
 import java.util.List;
 
 public class PrinterTemplate {
 
-    /**
-     * The minimum stack trace index, starts at this class after two native calls.
-     */
-    private static final int MIN_STACK_OFFSET = 3;
-
     /**
      * Drawing toolbox
      */
@@ -25,6 +19,8 @@ public class PrinterTemplate {
     private static final String BOTTOM_BORDER = BOTTOM_LEFT_CORNER + DOUBLE_DIVIDER + DOUBLE_DIVIDER;
     private static final String MIDDLE_BORDER = MIDDLE_CORNER + SINGLE_DIVIDER + SINGLE_DIVIDER;
 
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
     private int logType;
 
     private String tag;
@@ -33,181 +29,271 @@ public class PrinterTemplate {
 
     private boolean isPrintToFile;
 
-    private LogConfig config;
+    private StackTraceElement[] callerFrames;
+
+    private List<String> appendMsgList;
 
-    private LogPrinter printer;
+    private LogSettings config;
+
+    private LogEvent event;
+
+    //运行指标，为null时不记录
+    private LogMetrics metrics;
+
+    public PrinterTemplate(LogConfig config, LogEvent event) {
+        this(config != null ? config.snapshot() : null, event, null);
+    }
 
+    /**
+     * 使用当前线程上设置的方法栈数量和拼接内容生成日志，输出后清除这些设置
+     *
+     * @deprecated 使用{@link #PrinterTemplate(LogConfig, LogEvent)}
+     */
+    @Deprecated
     public PrinterTemplate(LogPrinter printer, int logType, String tag, String message, boolean isPrintToFile) {
-        this.printer = printer;
-        this.config = printer.getLogConfig();
-        this.logType = logType;
-        this.tag = tag;
-        this.message = message;
-        this.isPrintToFile = isPrintToFile;
+        this(printer.getLogConfig(), printer.takeEvent(logType, tag, message, isPrintToFile));
+    }
+
+    PrinterTemplate(LogSettings config, LogEvent event, LogMetrics metrics) {
+        reset(config, event, metrics);
+    }
+
+    /**
+     * 用于复用的空模板，通过{@link #println(LogSettings, LogEvent, LogMetrics)}输出日志
+     */
+    PrinterTemplate() {
+    }
+
+    /**
+     * 复用这个模板输出一条日志，调用方需要保证同一时间只有一个线程使用
+     */
+    void println(LogSettings config, LogEvent event, LogMetrics metrics) {
+        reset(config, event, metrics);
+        try {
+            println();
+        } finally {
+            //不持有已经输出的日志
+            reset(null, null, null);
+        }
+    }
+
+    private void reset(LogSettings config, LogEvent event, LogMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.event = event;
+        if (event == null) {
+            this.tag = null;
+            this.message = null;
+            this.callerFrames = null;
+            this.appendMsgList = null;
+            return;
+        }
+        this.logType = event.getLogType();
+        this.tag = event.getTag();
+        this.message = event.getMessage();
+        this.isPrintToFile = event.isPrintToFile();
+        this.callerFrames = event.getCallerFrames();
+        this.appendMsgList = event.getAppendMsgList();
     }
 
     public void println()
     {
-        int methodCount = getMethodCount();
+        if (metrics == null) {
+            LogBlock block = render();
+            for (LoggerInterface loggerInterface : config.getLoggers()) {
+                if (accepts(loggerInterface, isPrintToFile, logType)) {
+                    loggerInterface.logEvent(event, block);
+                }
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        LogBlock block = render();
+        long end = System.nanoTime();
+        metrics.recordEvent(logType, event.getPlainTag());
+        metrics.recordRender(end - start);
+        int chars = block.getText().length();
+        for (LoggerInterface loggerInterface : config.getLoggers()) {
+            if (accepts(loggerInterface, isPrintToFile, logType)) {
+                start = end;
+                loggerInterface.logEvent(event, block);
+                end = System.nanoTime();
+                metrics.recordSink(loggerInterface, chars, end - start);
+            }
+        }
+    }
 
-        List<String> appendMsgList = printer.getLocalMessageList().get();
-        printer.getLocalMessageList().remove();
+    /**
+     * 把整条日志渲染到一个缓冲区中，所有日志输出工具共用同一份渲染结果
+     *
+     * @return 渲染完成的日志
+     */
+    public LogBlock render()
+    {
+        int methodCount = callerFrames.length;
+        LogBlock block = new LogBlock(message.length() + 512);
 
-        if (methodCount <= 0 && (appendMsgList == null || appendMsgList.size() == 0) && !message.contains(System.getProperty("line.separator"))) {
-            singlePrintln();
+        if (methodCount <= 0 && appendMsgList.size() == 0 && message.indexOf('\n') < 0) {
+            singlePrintln(block);
         } else {
-            multiPrintln(methodCount, appendMsgList);
+            multiPrintln(block, methodCount, appendMsgList);
         }
+        return block;
+    }
+
+    /**
+     * 不经过日志配置直接渲染一条日志，不限制长度
+     *
+     * @param event 日志
+     * @return 渲染完成的日志
+     */
+    public static LogBlock render(LogEvent event)
+    {
+        return new PrinterTemplate((LogSettings) null, event, null).render();
+    }
+
+    /**
+     * 在调用线程上截取调用方的方法栈，跳过日志组件自身的栈帧
+     * <p>
+     * 使用StackWalker按需遍历，只为需要输出的栈帧创建StackTraceElement，取够methodCount个栈帧后立即停止
+     * </p>
+     *
+     * @param methodCount 需要的栈帧数量
+     * @return 调用方的栈帧，下标0为直接调用日志方法的栈帧
+     */
+    static StackTraceElement[] captureCallerFrames(int methodCount) {
+        if (methodCount <= 0) {
+            return null;
+        }
+        return STACK_WALKER.walk(frames -> frames
+                .dropWhile(frame -> isLoggingClass(frame.getDeclaringClass()))
+                .limit(methodCount)
+                .map(StackWalker.StackFrame::toStackTraceElement)
+                .toArray(StackTraceElement[]::new));
     }
 
     //单行打印
-    private void singlePrintln()
+    private void singlePrintln(LogBlock block)
     {
         //如果只是单行日志，则不加边框直接输出
-        logChunk(logType, tag, message, isPrintToFile);
+        block.newLine().append(message);
     }
 
     //多行打印
-    private void multiPrintln(int methodCount, List<String> appendMsgList)
+    private void multiPrintln(LogBlock block, int methodCount, List<String> appendMsgList)
     {
-        logTopBorder(logType, tag, isPrintToFile);
-        logHeaderContent(logType, tag, methodCount, isPrintToFile);
+        logTopBorder(block);
+        logHeaderContent(block, methodCount);
 
         if (methodCount > 0) {
-            logDivider(logType, tag, isPrintToFile);
+            logDivider(block);
         }
 
         if (appendMsgList != null && appendMsgList.size() > 0) {
-            for (String appendMsg : appendMsgList) {
-                logContent(logType, tag, appendMsg, isPrintToFile);
-                logDivider(logType, tag, isPrintToFile);
+            //拼接内容和消息共用单条日志的长度上限，消息一定输出，剩下的长度依次分给拼接内容，
+            //超出的拼接内容截断，之后的拼接内容不再输出
+            int budget = config != null && config.getMaxRecordSize() > 0 ? config.getMaxRecordSize() : Integer.MAX_VALUE;
+            int remaining = budget - message.length();
+            for (int i = 0; i < appendMsgList.size(); i++) {
+                String appendMsg = appendMsgList.get(i);
+                if (remaining <= 0) {
+                    block.newLine().append(HORIZONTAL_DOUBLE_LINE).append(" ... [")
+                            .append(appendMsgList.size() - i).append(" sections omitted, record size limit ")
+                            .append(budget).append(" chars]");
+                    logDivider(block);
+                    break;
+                }
+                if (appendMsg.length() > remaining) {
+                    StringBuilder truncated = new StringBuilder(remaining + 64).append(appendMsg, 0, remaining);
+                    LogUtil.appendTruncatedMarker(truncated, appendMsg.length());
+                    logContent(block, truncated.toString());
+                    remaining = 0;
+                } else {
+                    logContent(block, appendMsg);
+                    remaining -= appendMsg.length();
+                }
+                logDivider(block);
             }
         }
 
-        logContent(logType, tag, message, isPrintToFile);
-        logBottomBorder(logType, tag, isPrintToFile);
+        logContent(block, message);
+        logBottomBorder(block);
     }
 
-    private void logTopBorder(int logType, String tag, boolean printToFile) {
-        logChunk(logType, tag, TOP_BORDER, printToFile);
+    private void logTopBorder(LogBlock block) {
+        block.newLine().append(TOP_BORDER);
     }
 
-    private void logHeaderContent(int logType, String tag, int methodCount, boolean printToFile) {
-        StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-        String level = "";
-
-        int stackOffset = getStackOffset(trace);
-
-        //corresponding method count with the current stack may exceeds the stack trace. Trims the count
-        if (methodCount + stackOffset > trace.length) {
-            methodCount = trace.length - stackOffset - 1;
-        }
-
-        for (int i = methodCount; i > 0; i--) {
-            int stackIndex = i + stackOffset;
-            if (stackIndex >= trace.length) {
-                continue;
+    private void logHeaderContent(LogBlock block, int methodCount) {
+        for (int i = methodCount - 1; i >= 0; i--) {
+            StackTraceElement element = callerFrames[i];
+            StringBuilder builder = block.newLine().append("║ ");
+            for (int level = methodCount - 1; level > i; level--) {
+                builder.append("   ");
             }
-            StringBuilder builder = new StringBuilder();
-            builder.append("║ ")
-                    .append(level)
-                    .append(getSimpleClassName(trace[stackIndex].getClassName()))
+            String className = element.getClassName();
+            builder.append(className, className.lastIndexOf('.') + 1, className.length())
                     .append(".")
-                    .append(trace[stackIndex].getMethodName())
+                    .append(element.getMethodName())
                     .append(" ")
                     .append(" (")
-                    .append(trace[stackIndex].getFileName())
+                    .append(element.getFileName())
                     .append(":")
-                    .append(trace[stackIndex].getLineNumber())
+                    .append(element.getLineNumber())
                     .append(")");
-            level += "   ";
-            logChunk(logType, tag, builder.toString(), printToFile);
         }
     }
 
-    private void logBottomBorder(int logType, String tag, boolean printToFile) {
-        logChunk(logType, tag, BOTTOM_BORDER, printToFile);
+    private void logBottomBorder(LogBlock block) {
+        block.newLine().append(BOTTOM_BORDER);
     }
 
-    private void logDivider(int logType, String tag, boolean printToFile) {
-        logChunk(logType, tag, MIDDLE_BORDER, printToFile);
+    private void logDivider(LogBlock block) {
+        block.newLine().append(MIDDLE_BORDER);
     }
 
-    private void logContent(int logType, String tag, String chunk, boolean printToFile) {
-        String[] lines = chunk.split(System.getProperty("line.separator"));
-        for (String line : lines) {
-            logChunk(logType, tag, HORIZONTAL_DOUBLE_LINE + " " + line, printToFile);
+    /**
+     * 按换行符拆分内容，每一行加上左边框；兼容\r\n换行
+     */
+    private void logContent(LogBlock block, String chunk) {
+        int start = 0;
+        int length = chunk.length();
+        //与String.split一致，忽略末尾的空行
+        while (length > 0 && (chunk.charAt(length - 1) == '\n' || chunk.charAt(length - 1) == '\r')) {
+            length--;
         }
-    }
-
-    private void logChunk(int logType, String tag, String chunk, boolean printToFile) {
-        List<LoggerInterface> loggerInterfaces = config.getLoggers();
-        for (LoggerInterface loggerInterface : loggerInterfaces) {
-            if (!(loggerInterface instanceof FileLogger) || printToFile) {
-                switch (logType) {
-                    case LogLevel.ERROR:
-                        loggerInterface.error(tag, chunk);
-                        break;
-                    case LogLevel.INFO:
-                        loggerInterface.info(tag, chunk);
-                        break;
-                    case LogLevel.WARN:
-                        loggerInterface.warn(tag, chunk);
-                        break;
-                    case LogLevel.DEBUG:
-                        loggerInterface.debug(tag, chunk);
-                        break;
-                    case LogLevel.VERBOSE:
-                        loggerInterface.verbose(tag, chunk);
-                        break;
-                    case LogLevel.ASSERT:
-                        loggerInterface.assertError(tag, chunk);
-                        break;
-                    default:
-                        loggerInterface.verbose(tag, chunk);
-                        break;
-                }
+        while (start <= length) {
+            int end = chunk.indexOf('\n', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            int lineEnd = end > start && chunk.charAt(end - 1) == '\r' ? end - 1 : end;
+            block.newLine().append(HORIZONTAL_DOUBLE_LINE).append(' ').append(chunk, start, lineEnd);
+            start = end + 1;
+            if (end == length) {
+                break;
             }
         }
-
     }
 
     /**
-     * Determines the starting index of the stack trace, after method calls made by this class.
+     * 日志输出工具是否接收这条日志，文件类的日志输出工具只在需要输出到文件时才接收日志
      *
-     * @param trace the stack trace
-     * @return the stack offset
+     * @param loggerInterface 日志输出工具
+     * @param printToFile     是否输出到文件
+     * @param level           日志级别
+     * @return 是否接收这条日志
      */
-    private int getStackOffset(StackTraceElement[] trace) {
-        for (int i = MIN_STACK_OFFSET; i < trace.length; i++) {
-            StackTraceElement e = trace[i];
-            String name = e.getClassName();
-            if (!name.equals(LogPrinter.class.getName()) && !name.equals(RCLog.class.getName())) {
-                return --i;
-            }
+    static boolean accepts(LoggerInterface loggerInterface, boolean printToFile, int level) {
+        if (!printToFile && loggerInterface.isFileSink()) {
+            return false;
         }
-        return -1;
+        return loggerInterface.isEnabled(level);
     }
 
-    private String getSimpleClassName(String name) {
-        int lastIndex = name.lastIndexOf(".");
-        return name.substring(lastIndex + 1);
+    private static boolean isLoggingClass(Class<?> clazz) {
+        return clazz == PrinterTemplate.class || clazz == LogPrinter.class || clazz == RCLog.class;
     }
 
-    private int getMethodCount() {
-        Integer count = printer.getLocalMethodCount().get();
-        int result = config.getMethodCount();
-
-        if (count != null) {
-            printer.getLocalMethodCount().remove();
-            result = count;
-        }
-
-        if (result < 0) {
-            throw new IllegalStateException("methodCount cannot be negative");
-        }
-
-        return result;
-    }
 
 }
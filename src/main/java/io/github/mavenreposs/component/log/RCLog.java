@@ -2,16 +2,60 @@ package io.github.mavenreposs.component.log;
 
 import io.github.mavenreposs.component.log.contracts.LoggerInterface;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
 /**
  * 日志输出
+ * <p>
+ * RCLog的静态方法都使用默认的日志打印机，互不相关的模块（例如访问日志、批处理任务、审计日志）可以通过
+ * {@link #printer(String)}获取各自的日志打印机，每个打印机有独立的配置、输出工具和输出锁，互不阻塞。
+ * </p>
  */
 public final class RCLog {
+    //默认日志打印机的名称
+    public static final String DEFAULT_PRINTER = "RCLog";
+
     //日志打印机
-    private static LogPrinter printer = new LogPrinter();
+    private static final LogPrinter printer = new LogPrinter();
+
+    //按名称创建的日志打印机
+    private static final ConcurrentHashMap<String, LogPrinter> printers = new ConcurrentHashMap<>();
+
+    static {
+        printer.registerMetrics(DEFAULT_PRINTER);
+        printers.put(DEFAULT_PRINTER, printer);
+    }
 
     private RCLog() {
     }
 
+    /**
+     * @return RCLog静态方法使用的默认日志打印机
+     */
+    public static LogPrinter printer() {
+        return printer;
+    }
+
+    /**
+     * 获取指定名称的日志打印机，第一次获取时创建，默认Tag为名称，运行指标以该名称注册到JMX
+     *
+     * @param name 名称，{@link #DEFAULT_PRINTER}对应默认日志打印机
+     * @return 同一名称始终返回同一个日志打印机
+     */
+    public static LogPrinter printer(String name) {
+        LogPrinter namedPrinter = printers.get(name);
+        if (namedPrinter != null) {
+            return namedPrinter;
+        }
+        return printers.computeIfAbsent(name, key -> {
+            LogPrinter newPrinter = new LogPrinter();
+            newPrinter.getLogConfig().tag(key);
+            newPrinter.registerMetrics(key);
+            return newPrinter;
+        });
+    }
+
     /**
      * 初始化全局配置
      *
@@ -54,6 +98,15 @@ public final class RCLog {
         printer.getLogConfig().tag(tag).methodCount(methodCount).setLogLevel(level).printToFile(printToFile);
     }
 
+    /**
+     * 获取全局配置，用于设置init之外的配置项
+     *
+     * @return LogConfig
+     */
+    public static LogConfig config() {
+        return printer.getLogConfig();
+    }
+
     /**
      * 添加新的日志输入工具
      *
@@ -63,6 +116,15 @@ public final class RCLog {
         printer.getLogConfig().addLogger(loggerInterface);
     }
 
+    /**
+     * 等待所有日志打印机在异步模式下已提交的日志全部输出，并把二进制日志的缓冲区写入文件
+     */
+    public static void flush() {
+        for (LogPrinter logPrinter : printers.values()) {
+            logPrinter.flush();
+        }
+    }
+
     /**
      * 指定当前这条Log信息打印的tag，不受全局配置影响
      *
@@ -105,6 +167,17 @@ public final class RCLog {
         return printer;
     }
 
+    /**
+     * 拼接日志，只有这条日志最终会被输出时才生成内容
+     *
+     * @param supplier 消息内容
+     * @return 打印对象
+     */
+    public static LogPrinter append(Supplier<String> supplier) {
+        printer.append(supplier);
+        return printer;
+    }
+
     public static LogPrinter appendJson(String json) {
         printer.appendJson(json);
         return printer;
@@ -151,4 +224,50 @@ public final class RCLog {
     public static void object(Object obj) {
         printer.object(obj);
     }
+
+    /**
+     * 判断下一条日志是否会被输出，可以用来跳过代价较高的日志准备工作
+     *
+     * @param level 日志等级
+     * @return 日志会被输出时返回true
+     */
+    public static boolean isLoggable(int level) {
+        return printer.isLoggable(level);
+    }
+
+    /*
+     * 以下方法只有在日志会被至少一个日志输出工具输出时才调用supplier生成内容
+     */
+
+    public static void debug(Supplier<String> supplier) {
+        printer.debug(supplier);
+    }
+
+    public static void error(Supplier<String> supplier) {
+        printer.error(supplier);
+    }
+
+    public static void error(Throwable throwable, Supplier<String> supplier) {
+        printer.error(throwable, supplier);
+    }
+
+    public static void info(Supplier<String> supplier) {
+        printer.info(supplier);
+    }
+
+    public static void warn(Supplier<String> supplier) {
+        printer.warn(supplier);
+    }
+
+    public static void json(Supplier<String> supplier) {
+        printer.json(supplier);
+    }
+
+    public static void xml(Supplier<String> supplier) {
+        printer.xml(supplier);
+    }
+
+    public static void object(Supplier<Object> supplier) {
+        printer.object(supplier);
+    }
 }
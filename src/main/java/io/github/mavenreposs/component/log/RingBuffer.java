@@ -0,0 +1,97 @@
+package io.github.mavenreposs.component.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列，多生产者单消费者
+ * <p>
+ * 每个槽位带一个序号：序号等于生产者游标时槽位可写，等于游标+1时槽位可读，
+ * 生产者之间只竞争一次CAS，消费者不需要任何原子操作。
+ * </p>
+ *
+ * @param <E> 元素类型
+ */
+final class RingBuffer<E> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> buffer;
+
+    private final AtomicLongArray sequences;
+
+    //生产者游标
+    private final AtomicLong tail = new AtomicLong();
+
+    //消费者游标，只有消费线程写入
+    private long head;
+
+    RingBuffer(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        buffer = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入元素，可被多个线程同时调用
+     *
+     * @param e 元素
+     * @return 队列已满时返回false
+     */
+    boolean offer(E e) {
+        long pos;
+        int index;
+        for (;;) {
+            pos = tail.get();
+            index = (int) (pos & mask);
+            long dif = sequences.get(index) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+            } else if (dif < 0) {
+                return false;
+            }
+        }
+        buffer.lazySet(index, e);
+        sequences.lazySet(index, pos + 1);
+        return true;
+    }
+
+    /**
+     * 取出元素，只能由消费线程调用
+     *
+     * @return 队列为空或下一个槽位尚未写完时返回null
+     */
+    E poll() {
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E e = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequences.lazySet(index, pos + mask + 1);
+        head = pos + 1;
+        return e;
+    }
+
+    /**
+     * @return 已经成功写入的元素总数
+     */
+    long producedCount() {
+        return tail.get();
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
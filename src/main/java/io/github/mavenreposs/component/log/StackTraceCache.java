@@ -0,0 +1,159 @@
+package io.github.mavenreposs.component.log;
+
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异常堆栈指纹缓存
+ * <p>
+ * 按异常类型和每个栈帧的类名、方法名、行号计算指纹，不把堆栈拼接成文本；调用链中的cause一起计入，
+ * suppressed异常不计入。同一指纹在一个时间窗口内第一次出现时输出完整堆栈和编号，
+ * 之后只输出编号、消息和次数，依赖服务不可用时同一段堆栈不会被反复拼接和写入。
+ * 计数只使用CAS，不加锁。
+ * </p>
+ */
+final class StackTraceCache {
+
+    //最多缓存的指纹数量，超出后新的异常直接输出完整堆栈
+    private static final int MAX_TRACES = 1024;
+
+    //计算指纹时最多计入的cause层数，同时避免cause循环引用
+    private static final int MAX_CAUSES = 16;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ConcurrentHashMap<Long, Trace> traces = new ConcurrentHashMap<>();
+
+    //窗口开始时间相对于这个时间保存
+    private final long baseTime = System.currentTimeMillis();
+
+    //上一次清理过期指纹的时间
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    /**
+     * @param throwable    异常
+     * @param now          当前时间（毫秒）
+     * @param windowMillis 时间窗口（毫秒）
+     * @return 异常堆栈的记录，调用链中有UnknownHostException或缓存已满时返回null
+     */
+    Trace get(Throwable throwable, long now, long windowMillis) {
+        long fingerprint = 0;
+        Throwable t = throwable;
+        for (int depth = 0; t != null && depth < MAX_CAUSES; depth++) {
+            //与LogUtil.getStackTraceString一致，网络不可用时不输出堆栈
+            if (t instanceof UnknownHostException) {
+                return null;
+            }
+            fingerprint = fingerprint(fingerprint, t);
+            t = t.getCause();
+        }
+        Long key = fingerprint;
+        Trace trace = traces.get(key);
+        if (trace == null) {
+            if (traces.size() >= MAX_TRACES && !purge(now, windowMillis)) {
+                return null;
+            }
+            trace = traces.computeIfAbsent(key, k -> new Trace(k, baseTime));
+        }
+        return trace;
+    }
+
+    /**
+     * 清理窗口已经结束的指纹，每个时间窗口最多清理一次
+     *
+     * @return 清理后缓存是否有空位
+     */
+    private boolean purge(long now, long windowMillis) {
+        long last = lastPurge.get();
+        if (now - last >= windowMillis && lastPurge.compareAndSet(last, now)) {
+            traces.values().removeIf(trace -> now - trace.windowStart() >= windowMillis);
+        }
+        return traces.size() < MAX_TRACES;
+    }
+
+    /**
+     * FNV-1a，按int混入异常类型和栈帧
+     */
+    private static long fingerprint(long hash, Throwable throwable) {
+        hash = mix(hash == 0 ? FNV_OFFSET : hash, throwable.getClass().getName().hashCode());
+        for (StackTraceElement element : throwable.getStackTrace()) {
+            hash = mix(hash, element.getClassName().hashCode());
+            hash = mix(hash, element.getMethodName().hashCode());
+            hash = mix(hash, element.getLineNumber());
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    /**
+     * 一种异常堆栈在当前时间窗口内的出现次数
+     * <p>
+     * 窗口开始时间和次数保存在同一个long中，开始新窗口和计数是同一次CAS，
+     * 不会把旧窗口的次数算到新窗口里，也不会丢失计数
+     * </p>
+     */
+    static final class Trace {
+
+        //低位保存次数，超出后不再增加
+        private static final int COUNT_BITS = 24;
+
+        private static final long MAX_COUNT = (1L << COUNT_BITS) - 1;
+
+        private final String id;
+
+        private final long baseTime;
+
+        //高位为窗口开始时间相对baseTime的毫秒数，低位为次数，次数为0表示还没有开始窗口
+        private final AtomicLong state = new AtomicLong();
+
+        Trace(long fingerprint, long baseTime) {
+            this.id = String.format("%08x", (int) (fingerprint ^ (fingerprint >>> 32)));
+            this.baseTime = baseTime;
+        }
+
+        /**
+         * @return 输出日志时使用的编号
+         */
+        String getId() {
+            return id;
+        }
+
+        /**
+         * @return 当前窗口的开始时间（毫秒）
+         */
+        long windowStart() {
+            return baseTime + (state.get() >>> COUNT_BITS);
+        }
+
+        /**
+         * 记录一次出现，窗口结束后由CAS成功的线程开始新窗口
+         *
+         * @return 在当前窗口中是第几次出现，1表示需要输出完整堆栈；超出计数上限后保持不变
+         */
+        long record(long now, long windowMillis) {
+            long offset = Math.max(now - baseTime, 0);
+            while (true) {
+                long current = state.get();
+                long start = current >>> COUNT_BITS;
+                long count = current & MAX_COUNT;
+                long next;
+                if (count == 0 || offset - start >= windowMillis) {
+                    next = offset << COUNT_BITS | 1;
+                } else if (count < MAX_COUNT) {
+                    next = current + 1;
+                } else {
+                    return count;
+                }
+                if (state.compareAndSet(current, next)) {
+                    return next & MAX_COUNT;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.mavenreposs.component.log.contracts;
+
+import io.github.mavenreposs.component.log.LogLevel;
+
+/**
+ * 带最低输出级别的日志输出工具
+ * <p>
+ * 内置的输出工具都继承这个类，{@link #level(int)}设置的级别由{@link #isEnabled(int)}判断，
+ * 日志组件在所有输出工具都不输出时跳过格式化、方法栈截取和边框渲染。
+ * </p>
+ *
+ * @param <T> 输出工具类型，{@link #level(int)}返回输出工具本身，方便链式设置
+ */
+public abstract class AbstractLogger<T extends AbstractLogger<T>> implements LoggerInterface {
+
+    // 最低输出级别
+    private volatile int minLevel = LogLevel.VERBOSE;
+
+    /**
+     * 只输出大于等于该级别的日志，参考{@link LogLevel}
+     *
+     * @param minLevel 最低输出级别
+     * @return 输出工具本身
+     */
+    @SuppressWarnings("unchecked")
+    public T level(int minLevel) {
+        this.minLevel = minLevel;
+        return (T) this;
+    }
+
+    /**
+     * @return 最低输出级别
+     */
+    public int getLevel() {
+        return minLevel;
+    }
+
+    @Override
+    public boolean isEnabled(int level) {
+        return level >= minLevel;
+    }
+}
@@ -1,5 +1,9 @@
 package io.github.mavenreposs.component.log.contracts;
 
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.LogEvent;
+import io.github.mavenreposs.component.log.LogLevel;
+
 public interface LoggerInterface {
 
     //用来打印输出价值比较低的信息
@@ -20,4 +24,61 @@ public interface LoggerInterface {
     //用来打印不太可能发生的错误，表明当前问题是个严重的等级
     void assertError(String tag, String message);
 
+    //是否输出该级别的日志，日志组件在所有输出工具都不输出时跳过格式化、方法栈截取和边框渲染
+    default boolean isEnabled(int level) {
+        return true;
+    }
+
+    //是否写入日志文件，不需要输出到文件（printToFile为false）时日志组件不把日志交给这类输出工具
+    default boolean isFileSink() {
+        return false;
+    }
+
+    //输出过程中忽略的异常数量，用于运行指标
+    default long getErrorCount() {
+        return 0;
+    }
+
+    //输出一条完整的日志，需要结构化字段（时间、线程、方法栈、拼接内容等）的输出工具重写这个方法
+    default void logEvent(LogEvent event, LogBlock block) {
+        logBlock(event.getLogType(), event.getTag(), block);
+    }
+
+    //写出缓冲的日志并释放文件、定时任务等资源，例如重新加载配置时移除了这个输出工具
+    default void close() {
+    }
+
+    //按日志等级输出一行日志
+    default void log(int level, String tag, String message) {
+        switch (level) {
+            case LogLevel.ERROR:
+                error(tag, message);
+                break;
+            case LogLevel.INFO:
+                info(tag, message);
+                break;
+            case LogLevel.WARN:
+                warn(tag, message);
+                break;
+            case LogLevel.DEBUG:
+                debug(tag, message);
+                break;
+            case LogLevel.ASSERT:
+                assertError(tag, message);
+                break;
+            case LogLevel.VERBOSE:
+            default:
+                verbose(tag, message);
+                break;
+        }
+    }
+
+    //一次输出一整条渲染好的日志（可能包含边框等多行内容），默认逐行输出；
+    //实现类可以重写为一次写入，这样不同线程的日志块在下游也不会交错
+    default void logBlock(int level, String tag, LogBlock block) {
+        for (int i = 0; i < block.getLineCount(); i++) {
+            log(level, tag, block.getLine(i));
+        }
+    }
+
 }
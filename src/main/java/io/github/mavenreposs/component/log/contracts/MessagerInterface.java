@@ -1,8 +1,16 @@
 package io.github.mavenreposs.component.log.contracts;
 
+import io.github.mavenreposs.component.log.LogUtil;
+
 public interface MessagerInterface {
 
     // 获取解析过的消息
     public String getParseMessage();
 
+    // 获取解析过的消息，超过长度上限（字符数，小于等于0时不限制）的部分截断并注明原始大小；
+    // 实现类可以重写为边解析边检查，超出上限后立即停止解析
+    default String getParseMessage(int maxLength) {
+        return LogUtil.truncate(getParseMessage(), maxLength);
+    }
+
 }
@@ -0,0 +1,610 @@
+package io.github.mavenreposs.component.log.logger;
+
+import io.github.mavenreposs.component.log.LogLevel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 二进制日志文件
+ * <p>
+ * 调用线程上不格式化消息，只记录消息模板、参数的原始值、时间、级别和Tag，由{@link BinaryLogDecoder}离线还原成
+ * 与{@link FileLogger}相同的文本格式。模板和Tag第一次出现时写入一条字典记录，之后的日志只写编号；
+ * 时间只写与上一条日志的差值。
+ * </p>
+ * <p>
+ * 记录先写入缓冲区，缓冲区写满、输出错误日志、定时刷新、调用{@link #flush()}或进程退出时写入文件。
+ * </p>
+ * <p>
+ * 只有完整的记录才会写入文件：写入失败时丢弃缓冲区中的记录并清空字典，之后的记录重新写入字典，
+ * 文件中不会出现半条记录或者引用了丢失字典的记录。
+ * </p>
+ * <p>
+ * 文件格式：文件头为魔数"RCLB"、版本号和起始时间，之后依次是以下三种记录，整数均为变长编码：
+ * </p>
+ * <ul>
+ *     <li>模板：类型、编号、是否为{}占位符、模板字符串</li>
+ *     <li>Tag：类型、编号、Tag字符串</li>
+ *     <li>栈帧：类型、编号、类名、方法名、文件名（0表示没有，1表示后面跟文件名字符串）、行号</li>
+ *     <li>日志：类型、时间差、级别、Tag编号（0表示后面直接跟Tag字符串）、线程名（0表示没有，1表示后面跟线程名字符串）、
+ *     栈帧数量和每个栈帧的编号（0表示后面直接跟栈帧的内容）、模板编号（0表示后面直接跟消息字符串）、参数、拼接内容</li>
+ * </ul>
+ */
+public class BinaryFileLogger {
+
+    static final int MAGIC = 0x52434C42;
+
+    static final int VERSION = 3;
+
+    // 日志记录中没有栈帧的版本
+    static final int VERSION_WITHOUT_FRAMES = 2;
+
+    // 日志记录中没有线程名和栈帧的版本
+    static final int VERSION_WITHOUT_THREAD = 1;
+
+    static final int ENTRY_TEMPLATE = 1;
+
+    static final int ENTRY_TAG = 2;
+
+    static final int ENTRY_RECORD = 3;
+
+    static final int ENTRY_FRAME = 4;
+
+    static final int ARG_NULL = 0;
+
+    static final int ARG_INT = 1;
+
+    static final int ARG_LONG = 2;
+
+    static final int ARG_DOUBLE = 3;
+
+    static final int ARG_FLOAT = 4;
+
+    static final int ARG_BOOLEAN = 5;
+
+    static final int ARG_CHAR = 6;
+
+    static final int ARG_STRING = 7;
+
+    static final int ARG_SHORT = 8;
+
+    static final int ARG_BYTE = 9;
+
+    // 默认写缓冲区大小（字节）
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // 默认定时刷新间隔（毫秒）
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    // 字典中最多保存的模板和Tag数量，超出后直接写入字符串
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+
+    private static ScheduledExecutorService flushScheduler;
+
+    private final File file;
+
+    private final int bufferSize;
+
+    private final OutputStream out;
+
+    // 定时刷新任务，没有定时刷新时为null
+    private final ScheduledFuture<?> flushTask;
+
+    private final HashMap<String, Integer> templates = new HashMap<>();
+
+    private final HashMap<String, Integer> tags = new HashMap<>();
+
+    private final HashMap<StackTraceElement, Integer> frames = new HashMap<>();
+
+    // 写入时忽略的异常数量
+    private final LongAdder errorCount = new LongAdder();
+
+    // 写入、刷新和关闭时持有，虚拟线程在等待或写入时不会占住载体线程
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 以下缓冲区和时间只在持有lock时使用
+    private byte[] buffer;
+
+    private int position;
+
+    // 正在写入的记录（包括它的字典记录）在缓冲区中的起始位置，之前的内容都是完整的记录
+    private int recordStart;
+
+    // 缓冲区中最后一条完整记录的时间
+    private long lastTimestamp;
+
+    // 已经写入文件的最后一条记录的时间
+    private long diskTimestamp;
+
+    private boolean closed;
+
+    /**
+     * 日志文件保存在storages/RCLog/binary目录下
+     */
+    public BinaryFileLogger() {
+        this(newBinaryLogFile(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param file       日志文件，已经存在时覆盖
+     * @param bufferSize 写缓冲区大小（字节）
+     */
+    public BinaryFileLogger(File file, int bufferSize) {
+        this(file, bufferSize, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param file                日志文件，已经存在时覆盖
+     * @param bufferSize          写缓冲区大小（字节）
+     * @param flushIntervalMillis 定时刷新间隔，小于等于0时只在缓冲区写满、输出错误日志或调用flush时写入文件
+     */
+    public BinaryFileLogger(File file, int bufferSize, long flushIntervalMillis) {
+        this(file, open(file), bufferSize, flushIntervalMillis);
+    }
+
+    /**
+     * @param out 日志文件的输出流，打开文件失败时为null
+     */
+    BinaryFileLogger(File file, OutputStream out, int bufferSize, long flushIntervalMillis) {
+        this.file = file;
+        this.out = out;
+        this.bufferSize = Math.max(bufferSize, 1024);
+        this.buffer = new byte[this.bufferSize];
+        this.lastTimestamp = System.currentTimeMillis();
+        this.diskTimestamp = lastTimestamp;
+        //文件头直接写入文件，写入失败时之后的记录都无法解析，不再写入
+        try {
+            if (out == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            writeInt(MAGIC);
+            writeVarLong(VERSION);
+            writeVarLong(lastTimestamp);
+            flushBuffer();
+        } catch (IOException e) {
+            errorCount.increment();
+            closed = true;
+            closeStream();
+        }
+        this.flushTask = flushIntervalMillis > 0 && !closed
+                ? getFlushScheduler().scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS)
+                : null;
+        ShutdownHooks.register(this, BinaryFileLogger::close);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * 写入一条日志，参数中的基本类型和字符串保存原始值，其它对象保存toString的结果
+     *
+     * @param level           日志级别
+     * @param tag             Tag
+     * @param timestamp       时间（毫秒）
+     * @param template        消息模板
+     * @param placeholder     模板是否使用{}占位符，否则按String.format格式化
+     * @param args            模板参数，没有参数时模板按完整消息保存，不写入字典
+     * @param appendedMessages 拼接的内容
+     */
+    public void write(int level, String tag, long timestamp, String template, boolean placeholder,
+                      Object[] args, List<String> appendedMessages) {
+        write(level, tag, null, timestamp, template, placeholder, args, appendedMessages);
+    }
+
+    /**
+     * 写入一条日志，线程名单独保存，同一个Tag在不同线程上只写入一次字典
+     *
+     * @param level           日志级别
+     * @param tag             Tag，不包含线程信息
+     * @param thread          线程名，不输出线程信息时为null
+     * @param timestamp       时间（毫秒）
+     * @param template        消息模板
+     * @param placeholder     模板是否使用{}占位符，否则按String.format格式化
+     * @param args            模板参数，没有参数时模板按完整消息保存，不写入字典
+     * @param appendedMessages 拼接的内容
+     */
+    public void write(int level, String tag, String thread, long timestamp, String template, boolean placeholder,
+                      Object[] args, List<String> appendedMessages) {
+        write(level, tag, thread, null, timestamp, template, placeholder, args, appendedMessages);
+    }
+
+    /**
+     * 写入一条日志，同时保存调用方的栈帧，还原时与文本日志一样输出方法栈和分割线
+     *
+     * @param level           日志级别
+     * @param tag             Tag，不包含线程信息
+     * @param thread          线程名，不输出线程信息时为null
+     * @param callerFrames    调用方的栈帧，下标0为直接调用日志方法的栈帧，不输出方法栈时为null
+     * @param timestamp       时间（毫秒）
+     * @param template        消息模板
+     * @param placeholder     模板是否使用{}占位符，否则按String.format格式化
+     * @param args            模板参数，没有参数时模板按完整消息保存，不写入字典
+     * @param appendedMessages 拼接的内容
+     */
+    public void write(int level, String tag, String thread, StackTraceElement[] callerFrames, long timestamp,
+                      String template, boolean placeholder, Object[] args, List<String> appendedMessages) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            //先把对象参数转换为字符串，toString抛出异常时不会写入半条日志
+            Object[] values = args.clone();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toValue(values[i]);
+            }
+            if (template == null) {
+                template = "";
+            }
+            int templateCount = templates.size();
+            int tagCount = tags.size();
+            int frameCount = frames.size();
+            recordStart = position;
+            try {
+                writeRecord(level, tag, thread, callerFrames, timestamp, template, placeholder, values, appendedMessages);
+            } catch (RuntimeException e) {
+                //回滚这条记录和它新写入的字典
+                position = recordStart;
+                templates.values().removeIf(id -> id > templateCount);
+                tags.values().removeIf(id -> id > tagCount);
+                frames.values().removeIf(id -> id > frameCount);
+                throw e;
+            } finally {
+                recordStart = position;
+            }
+            lastTimestamp = timestamp;
+            if (level >= LogLevel.ERROR) {
+                flushBuffer();
+            }
+        } catch (IOException | RuntimeException e) {
+            errorCount.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeRecord(int level, String tag, String thread, StackTraceElement[] callerFrames, long timestamp,
+                             String template, boolean placeholder, Object[] values, List<String> appendedMessages) throws IOException {
+        int tagId = intern(tags, tag, ENTRY_TAG, false);
+        int templateId = values.length > 0 ? intern(templates, template, ENTRY_TEMPLATE, placeholder) : 0;
+        int callerCount = callerFrames != null ? callerFrames.length : 0;
+        int[] frameIds = new int[callerCount];
+        for (int i = 0; i < callerCount; i++) {
+            frameIds[i] = internFrame(callerFrames[i]);
+        }
+        writeVarLong(ENTRY_RECORD);
+        writeVarLong(zigZag(timestamp - lastTimestamp));
+        writeVarLong(level);
+        writeVarLong(tagId);
+        if (tagId == 0) {
+            writeString(tag);
+        }
+        writeVarLong(thread != null ? 1 : 0);
+        if (thread != null) {
+            writeString(thread);
+        }
+        writeVarLong(callerCount);
+        for (int i = 0; i < callerCount; i++) {
+            writeVarLong(frameIds[i]);
+            if (frameIds[i] == 0) {
+                writeFrame(callerFrames[i]);
+            }
+        }
+        writeVarLong(templateId);
+        if (templateId == 0) {
+            writeString(template);
+        }
+        writeVarLong(values.length);
+        for (Object value : values) {
+            writeArg(value);
+        }
+        int appendCount = appendedMessages != null ? appendedMessages.size() : 0;
+        writeVarLong(appendCount);
+        for (int i = 0; i < appendCount; i++) {
+            writeString(appendedMessages.get(i));
+        }
+    }
+
+    /**
+     * 将缓冲区中的完整记录写入文件
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            flushBuffer();
+        } catch (IOException e) {
+            errorCount.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止定时刷新，写入缓冲区中的记录并关闭文件，之后的日志会被忽略
+     */
+    public void close() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            flush();
+            closed = true;
+            closeStream();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeStream() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                errorCount.increment();
+            }
+        }
+    }
+
+    /**
+     * @return 字典中的编号，字典已满时返回0
+     */
+    private int intern(HashMap<String, Integer> dictionary, String value, int entryType, boolean placeholder) throws IOException {
+        Integer id = dictionary.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+            return 0;
+        }
+        id = dictionary.size() + 1;
+        dictionary.put(value, id);
+        writeVarLong(entryType);
+        writeVarLong(id);
+        if (entryType == ENTRY_TEMPLATE) {
+            writeVarLong(placeholder ? 1 : 0);
+        }
+        writeString(value);
+        return id;
+    }
+
+    /**
+     * @return 栈帧在字典中的编号，字典已满时返回0
+     */
+    private int internFrame(StackTraceElement frame) throws IOException {
+        Integer id = frames.get(frame);
+        if (id != null) {
+            return id;
+        }
+        if (frames.size() >= MAX_DICTIONARY_SIZE) {
+            return 0;
+        }
+        id = frames.size() + 1;
+        frames.put(frame, id);
+        writeVarLong(ENTRY_FRAME);
+        writeVarLong(id);
+        writeFrame(frame);
+        return id;
+    }
+
+    private void writeFrame(StackTraceElement frame) throws IOException {
+        writeString(frame.getClassName());
+        writeString(frame.getMethodName());
+        writeVarLong(frame.getFileName() != null ? 1 : 0);
+        if (frame.getFileName() != null) {
+            writeString(frame.getFileName());
+        }
+        writeVarLong(zigZag(frame.getLineNumber()));
+    }
+
+    private void writeArg(Object arg) throws IOException {
+        if (arg == null) {
+            writeVarLong(ARG_NULL);
+        } else if (arg instanceof Integer) {
+            writeVarLong(ARG_INT);
+            writeVarLong(zigZag((Integer) arg));
+        } else if (arg instanceof Short) {
+            writeVarLong(ARG_SHORT);
+            writeVarLong(zigZag((Short) arg));
+        } else if (arg instanceof Byte) {
+            writeVarLong(ARG_BYTE);
+            writeVarLong(zigZag((Byte) arg));
+        } else if (arg instanceof Long) {
+            writeVarLong(ARG_LONG);
+            writeVarLong(zigZag((Long) arg));
+        } else if (arg instanceof Double) {
+            writeVarLong(ARG_DOUBLE);
+            writeLong(Double.doubleToRawLongBits((Double) arg));
+        } else if (arg instanceof Float) {
+            writeVarLong(ARG_FLOAT);
+            writeInt(Float.floatToRawIntBits((Float) arg));
+        } else if (arg instanceof Boolean) {
+            writeVarLong(ARG_BOOLEAN);
+            writeVarLong((Boolean) arg ? 1 : 0);
+        } else if (arg instanceof Character) {
+            writeVarLong(ARG_CHAR);
+            writeVarLong((Character) arg);
+        } else {
+            writeVarLong(ARG_STRING);
+            writeString((String) arg);
+        }
+    }
+
+    /**
+     * 基本类型的包装类保留原始值，其它对象转换为字符串
+     */
+    private static Object toValue(Object arg) {
+        if (arg == null || arg instanceof Number && arg.getClass().getName().startsWith("java.lang.")
+                || arg instanceof Boolean || arg instanceof Character || arg instanceof String) {
+            return arg;
+        }
+        return arg.getClass().isArray() ? arrayToString(arg) : String.valueOf(arg);
+    }
+
+    private static String arrayToString(Object array) {
+        if (array instanceof Object[]) {
+            return Arrays.deepToString((Object[]) array);
+        } else if (array instanceof int[]) {
+            return Arrays.toString((int[]) array);
+        } else if (array instanceof long[]) {
+            return Arrays.toString((long[]) array);
+        } else if (array instanceof byte[]) {
+            return Arrays.toString((byte[]) array);
+        } else if (array instanceof short[]) {
+            return Arrays.toString((short[]) array);
+        } else if (array instanceof char[]) {
+            return Arrays.toString((char[]) array);
+        } else if (array instanceof boolean[]) {
+            return Arrays.toString((boolean[]) array);
+        } else if (array instanceof float[]) {
+            return Arrays.toString((float[]) array);
+        } else {
+            return Arrays.toString((double[]) array);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeInt(int value) throws IOException {
+        ensureCapacity(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * 缓冲区剩余空间不足时先把完整的记录写入文件，正在写入的记录移到缓冲区开头，单条超长的记录临时扩大缓冲区
+     *
+     * @throws IOException 写入文件失败，缓冲区中的记录（包括正在写入的记录）已经被丢弃
+     */
+    private void ensureCapacity(int length) throws IOException {
+        if (buffer.length - position >= length) {
+            return;
+        }
+        if (recordStart > 0) {
+            writeBuffer(recordStart);
+            System.arraycopy(buffer, recordStart, buffer, 0, position - recordStart);
+            position -= recordStart;
+            recordStart = 0;
+        }
+        if (buffer.length - position < length) {
+            buffer = Arrays.copyOf(buffer, position + Math.max(length, bufferSize));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer(position);
+        position = 0;
+        recordStart = 0;
+        // 超长日志撑大的缓冲区不长期保留
+        if (buffer.length > bufferSize) {
+            buffer = new byte[bufferSize];
+        }
+    }
+
+    /**
+     * 把缓冲区开头的完整记录写入文件
+     */
+    private void writeBuffer(int length) throws IOException {
+        try {
+            if (length > 0 && out != null) {
+                out.write(buffer, 0, length);
+                out.flush();
+            }
+        } catch (IOException e) {
+            discard();
+            throw e;
+        }
+        diskTimestamp = lastTimestamp;
+    }
+
+    /**
+     * 丢弃缓冲区中的所有记录，丢失的记录中可能有字典记录，之后重新写入字典，时间差从文件中最后一条记录算起
+     */
+    private void discard() {
+        position = 0;
+        recordStart = 0;
+        templates.clear();
+        tags.clear();
+        frames.clear();
+        lastTimestamp = diskTimestamp;
+        if (buffer.length > bufferSize) {
+            buffer = new byte[bufferSize];
+        }
+    }
+
+    private static OutputStream open(File file) {
+        try {
+            return new FileOutputStream(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static File newBinaryLogFile() {
+        File file = FileLogger.newLogFile(new File("storages", "RCLog").getAbsolutePath(), "binary");
+        String name = file.getName();
+        file = new File(file.getParentFile(), name.substring(0, name.length() - ".log".length()) + ".rclog");
+        for (int i = 1; file.exists(); i++) {
+            file = new File(file.getParentFile(), name.substring(0, name.length() - ".log".length()) + "-" + i + ".rclog");
+        }
+        return file;
+    }
+
+    private static synchronized ScheduledExecutorService getFlushScheduler() {
+        if (flushScheduler == null) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "RCLog-BinaryFlusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flushScheduler;
+    }
+}
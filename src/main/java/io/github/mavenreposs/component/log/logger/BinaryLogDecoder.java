@@ -0,0 +1,271 @@
+package io.github.mavenreposs.component.log.logger;
+
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.LogEvent;
+import io.github.mavenreposs.component.log.LogUtil;
+import io.github.mavenreposs.component.log.PrinterTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 把{@link BinaryFileLogger}写入的二进制日志还原成{@link FileLogger}的文本格式
+ * <p>
+ * 记录了栈帧的日志与文本日志一样输出方法栈和分割线；版本3之前的文件没有记录栈帧，
+ * 输出方法栈的日志还原后没有方法栈这一部分。
+ * </p>
+ * <p>
+ * 命令行：java -cp component-log.jar io.github.mavenreposs.component.log.logger.BinaryLogDecoder 二进制日志文件 [输出文件]，
+ * 不指定输出文件时输出到标准输出。
+ * </p>
+ */
+public final class BinaryLogDecoder {
+
+    private final DataInputStream in;
+
+    private final Appendable out;
+
+    private final HashMap<Integer, String> templates = new HashMap<>();
+
+    private final HashMap<Integer, Boolean> placeholders = new HashMap<>();
+
+    private final HashMap<Integer, String> tags = new HashMap<>();
+
+    private final HashMap<Integer, StackTraceElement> frames = new HashMap<>();
+
+    private final SimpleDateFormat lineDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+
+    private long timestamp;
+
+    private int version;
+
+    private BinaryLogDecoder(InputStream in, Appendable out) {
+        this.in = new DataInputStream(in);
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BinaryLogDecoder <binary log file> [output file]");
+            System.exit(1);
+        }
+        if (args.length > 1) {
+            decode(new File(args[0]), new File(args[1]));
+        } else {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            try (InputStream in = new FileInputStream(args[0])) {
+                decode(in, writer);
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * @param binaryFile 二进制日志文件
+     * @param textFile   输出的文本日志文件，已经存在时覆盖
+     * @return 还原的日志数量
+     * @throws IOException 读写文件失败或者不是二进制日志文件
+     */
+    public static long decode(File binaryFile, File textFile) throws IOException {
+        try (InputStream in = new FileInputStream(binaryFile);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(textFile), StandardCharsets.UTF_8))) {
+            return decode(in, writer);
+        }
+    }
+
+    /**
+     * 逐条还原日志，文件末尾不完整的日志（例如进程异常退出时）会被忽略
+     *
+     * @param in  二进制日志
+     * @param out 输出的文本日志
+     * @return 还原的日志数量
+     * @throws IOException 读写失败或者不是二进制日志文件
+     */
+    public static long decode(InputStream in, Appendable out) throws IOException {
+        return new BinaryLogDecoder(new BufferedInputStream(in), out).decode();
+    }
+
+    private long decode() throws IOException {
+        if (in.readInt() != BinaryFileLogger.MAGIC) {
+            throw new IOException("Not a RCLog binary log file");
+        }
+        version = (int) readVarLong();
+        if (version != BinaryFileLogger.VERSION && version != BinaryFileLogger.VERSION_WITHOUT_FRAMES
+                && version != BinaryFileLogger.VERSION_WITHOUT_THREAD) {
+            throw new IOException("Unsupported RCLog binary log version " + version);
+        }
+        timestamp = readVarLong();
+        long count = 0;
+        while (true) {
+            int entryType;
+            try {
+                entryType = in.readUnsignedByte();
+            } catch (EOFException e) {
+                return count;
+            }
+            try {
+                switch (entryType) {
+                    case BinaryFileLogger.ENTRY_TEMPLATE: {
+                        int id = (int) readVarLong();
+                        placeholders.put(id, readVarLong() == 1);
+                        templates.put(id, readString());
+                        break;
+                    }
+                    case BinaryFileLogger.ENTRY_TAG: {
+                        int id = (int) readVarLong();
+                        tags.put(id, readString());
+                        break;
+                    }
+                    case BinaryFileLogger.ENTRY_FRAME: {
+                        int id = (int) readVarLong();
+                        frames.put(id, readFrame());
+                        break;
+                    }
+                    case BinaryFileLogger.ENTRY_RECORD:
+                        readRecord();
+                        count++;
+                        break;
+                    default:
+                        throw new IOException("Corrupted RCLog binary log, unknown entry type " + entryType);
+                }
+            } catch (EOFException e) {
+                return count;
+            }
+        }
+    }
+
+    private void readRecord() throws IOException {
+        timestamp += unZigZag(readVarLong());
+        int level = (int) readVarLong();
+        int tagId = (int) readVarLong();
+        String tag = tagId == 0 ? readString() : tags.get(tagId);
+        if (version != BinaryFileLogger.VERSION_WITHOUT_THREAD && readVarLong() == 1) {
+            tag = tag + "[" + readString() + "]";
+        }
+        StackTraceElement[] callerFrames = null;
+        if (version >= BinaryFileLogger.VERSION) {
+            callerFrames = new StackTraceElement[(int) readVarLong()];
+            for (int i = 0; i < callerFrames.length; i++) {
+                int frameId = (int) readVarLong();
+                callerFrames[i] = frameId == 0 ? readFrame() : frames.get(frameId);
+            }
+        }
+        int templateId = (int) readVarLong();
+        String template = templateId == 0 ? readString() : templates.get(templateId);
+        boolean placeholder = templateId != 0 && placeholders.get(templateId);
+        Object[] args = new Object[(int) readVarLong()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = readArg();
+        }
+        int appendCount = (int) readVarLong();
+        List<String> appendMsgList = new ArrayList<>(appendCount);
+        for (int i = 0; i < appendCount; i++) {
+            appendMsgList.add(readString());
+        }
+
+        String message = format(template, placeholder, args);
+        if (LogUtil.isEmpty(message)) {
+            message = "Empty/NULL log message";
+        }
+        LogBlock block = PrinterTemplate.render(new LogEvent(level, tag, message, appendMsgList, callerFrames, true));
+        lineBuilder.setLength(0);
+        String linePrefix = lineDateFormat.format(new Date(timestamp)) + ": "
+                + FileLogger.getPriorityName(FileLogger.getFilePriority(level)) + "/" + tag + ": ";
+        for (int i = 0; i < block.getLineCount(); i++) {
+            lineBuilder.append(linePrefix);
+            block.appendLine(i, lineBuilder);
+            lineBuilder.append("\r\n");
+        }
+        out.append(lineBuilder);
+    }
+
+    /**
+     * 格式化失败时（例如参数类型与%d等格式不符）保留模板和参数
+     */
+    private static String format(String template, boolean placeholder, Object[] args) {
+        if (args.length == 0) {
+            return template;
+        }
+        try {
+            return LogUtil.format(template, placeholder, args);
+        } catch (RuntimeException e) {
+            return template + " " + Arrays.toString(args);
+        }
+    }
+
+    private Object readArg() throws IOException {
+        int type = (int) readVarLong();
+        switch (type) {
+            case BinaryFileLogger.ARG_NULL:
+                return null;
+            case BinaryFileLogger.ARG_INT:
+                return (int) unZigZag(readVarLong());
+            case BinaryFileLogger.ARG_LONG:
+                return unZigZag(readVarLong());
+            case BinaryFileLogger.ARG_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case BinaryFileLogger.ARG_FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case BinaryFileLogger.ARG_BOOLEAN:
+                return readVarLong() == 1;
+            case BinaryFileLogger.ARG_CHAR:
+                return (char) readVarLong();
+            case BinaryFileLogger.ARG_STRING:
+                return readString();
+            case BinaryFileLogger.ARG_SHORT:
+                return (short) unZigZag(readVarLong());
+            case BinaryFileLogger.ARG_BYTE:
+                return (byte) unZigZag(readVarLong());
+            default:
+                throw new IOException("Corrupted RCLog binary log, unknown argument type " + type);
+        }
+    }
+
+    private StackTraceElement readFrame() throws IOException {
+        String className = readString();
+        String methodName = readString();
+        String fileName = readVarLong() == 1 ? readString() : null;
+        int lineNumber = (int) unZigZag(readVarLong());
+        return new StackTraceElement(className, methodName, fileName, lineNumber);
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[(int) readVarLong()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupted RCLog binary log, malformed varint");
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
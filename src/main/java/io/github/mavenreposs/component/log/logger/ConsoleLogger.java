@@ -1,25 +1,35 @@
 package io.github.mavenreposs.component.log.logger;
 
 
-import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.contracts.AbstractLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * 控制台输出Log
+ * <p>
+ * 通过slf4j输出，每个Tag（不含线程信息）对应一个同名的slf4j Logger，可以在slf4j的实现中按Tag配置输出
+ * </p>
  */
-public class ConsoleLogger implements LoggerInterface {
+public class ConsoleLogger extends AbstractLogger<ConsoleLogger> {
+
+    // 带线程信息的Tag最多缓存的数量，线程很多时只按不含线程信息的Tag查找
+    private static final int MAX_CACHED_TAGS = 1024;
+
+    // Tag对应的Logger只创建一次
+    private final ConcurrentHashMap<String, Logger> mLoggers = new ConcurrentHashMap<>();
 
     @Override
     public void debug(String tag, String message) {
-        Logger logger = LoggerFactory.getLogger(Object.class);
-        logger.info(message);
+        getLogger(tag).info(message);
     }
 
     @Override
     public void error(String tag, String message) {
-        Logger logger = LoggerFactory.getLogger(Object.class);
-        logger.error(message);
+        getLogger(tag).error(message);
     }
 
     @Override
@@ -29,8 +39,7 @@ public class ConsoleLogger implements LoggerInterface {
 
     @Override
     public void warn(String tag, String message) {
-        Logger logger = LoggerFactory.getLogger(Object.class);
-        logger.warn(message);
+        getLogger(tag).warn(message);
     }
 
     @Override
@@ -40,8 +49,28 @@ public class ConsoleLogger implements LoggerInterface {
 
     @Override
     public void info(String tag, String message) {
-        Logger logger = LoggerFactory.getLogger(Object.class);
-        logger.info(message);
+        getLogger(tag).info(message);
+    }
+
+    /**
+     * 整条日志作为一条消息输出，多行日志块不会与其它线程的输出交错
+     */
+    @Override
+    public void logBlock(int level, String tag, LogBlock block) {
+        String message = block.getLineCount() > 1 ? "\n" + block : block.toString();
+        log(level, tag, message);
+    }
+
+    private Logger getLogger(String tag) {
+        Logger logger = mLoggers.get(tag);
+        if (logger == null) {
+            logger = mLoggers.computeIfAbsent(FileLogger.getTrueTag(tag), LoggerFactory::getLogger);
+            // 带线程信息的Tag也缓存一份，之后不需要再截取
+            if (mLoggers.size() < MAX_CACHED_TAGS) {
+                mLoggers.putIfAbsent(tag, logger);
+            }
+        }
+        return logger;
     }
 
 }
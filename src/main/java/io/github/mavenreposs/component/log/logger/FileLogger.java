@@ -1,12 +1,23 @@
 package io.github.mavenreposs.component.log.logger;
 
+import io.github.mavenreposs.component.log.LogBlock;
 import io.github.mavenreposs.component.log.LogLevel;
-import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+import io.github.mavenreposs.component.log.contracts.AbstractLogger;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 文件输出Log
@@ -16,10 +27,17 @@ import java.util.HashMap;
  * <p>
  * 日志文件存储在外部存储空间的RCLOG文件夹下
  * </p>
+ * <p>
+ * 默认一个Tag在进程运行期间只写一个文件，可以通过{@link #maxFileSize(long)}和{@link #rollingInterval(long)}
+ * 开启按大小或按时间滚动，通过{@link #maxTotalSize(long)}和{@link #maxFileAge(long)}限制日志占用的磁盘空间
+ * </p>
  */
-public class FileLogger implements LoggerInterface {
-    // 日志文件保存的文件夹目录
-    private static String LOG_DIR_PATH;
+public class FileLogger extends AbstractLogger<FileLogger> {
+    // 默认写缓冲区大小（字符数）
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // 默认定时刷新间隔（毫秒）
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
 
     private final FileStorage fileStorage;
 
@@ -27,9 +45,26 @@ public class FileLogger implements LoggerInterface {
      * 日志文件存储路径为外部存储UELog文件夹下
      */
     public FileLogger() {
-        File file = new File("storages", "RCLog");
-        LOG_DIR_PATH = file.getAbsolutePath();
-        fileStorage = new FileStorage(LOG_DIR_PATH);
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * 同一日志目录的FileLogger共用日志文件，缓冲区取其中最大的，定时刷新间隔取其中最短的
+     *
+     * @param bufferSize          每个日志文件的写缓冲区大小（字符数），写满后写入文件
+     * @param flushIntervalMillis 定时将缓冲区写入文件的间隔，小于等于0时不定时刷新
+     */
+    public FileLogger(int bufferSize, long flushIntervalMillis) {
+        this(new File("storages", "RCLog"), bufferSize, flushIntervalMillis);
+    }
+
+    /**
+     * @param rootDir             日志根目录
+     * @param bufferSize          每个日志文件的写缓冲区大小（字符数），写满后写入文件
+     * @param flushIntervalMillis 定时将缓冲区写入文件的间隔，小于等于0时不定时刷新
+     */
+    FileLogger(File rootDir, int bufferSize, long flushIntervalMillis) {
+        fileStorage = FileStorage.forPath(rootDir.getAbsolutePath(), bufferSize, flushIntervalMillis);
     }
 
     @Override
@@ -62,17 +97,299 @@ public class FileLogger implements LoggerInterface {
         fileStorage.write(LogLevel.INFO, tag, message);
     }
 
+    /**
+     * 整条日志的所有行一次写入文件，不会与其它线程的日志交错
+     */
+    @Override
+    public void logBlock(int level, String tag, LogBlock block) {
+        fileStorage.write(getFilePriority(level), tag, block);
+    }
+
+    /**
+     * 单个日志文件超过该大小（字节）后滚动到新文件
+     * <p>
+     * 滚动和保留策略属于日志目录，同一目录下的所有FileLogger共用，以最后一次设置为准
+     * </p>
+     *
+     * @param maxFileSize 文件大小上限，小于等于0时不按大小滚动
+     * @return FileLogger
+     */
+    public FileLogger maxFileSize(long maxFileSize) {
+        fileStorage.maxFileSize = maxFileSize;
+        return this;
+    }
+
+    /**
+     * 按固定时间周期滚动日志文件，周期按本地时间对齐，例如3600000表示每个整点滚动
+     *
+     * @param rollingInterval 滚动周期（毫秒），小于等于0时不按时间滚动
+     * @return FileLogger
+     */
+    public FileLogger rollingInterval(long rollingInterval) {
+        fileStorage.rollingInterval = rollingInterval;
+        return this;
+    }
+
+    /**
+     * @param compress 滚动后的旧文件是否在后台压缩为.gz
+     * @return FileLogger
+     */
+    public FileLogger compress(boolean compress) {
+        fileStorage.compress = compress;
+        return this;
+    }
+
+    /**
+     * 日志根目录下所有日志文件的总大小上限，超出后从最旧的文件开始删除
+     *
+     * @param maxTotalSize 总大小上限（字节），小于等于0时不限制
+     * @return FileLogger
+     */
+    public FileLogger maxTotalSize(long maxTotalSize) {
+        fileStorage.maxTotalSize = maxTotalSize;
+        fileStorage.scheduleCleanUp();
+        return this;
+    }
+
+    /**
+     * 日志文件的最长保留时间，按最后修改时间计算
+     *
+     * @param maxFileAge 保留时间（毫秒），小于等于0时不限制
+     * @return FileLogger
+     */
+    public FileLogger maxFileAge(long maxFileAge) {
+        fileStorage.maxFileAge = maxFileAge;
+        fileStorage.scheduleCleanUp();
+        return this;
+    }
+
+    /**
+     * 去掉Tag中附带的线程信息，同一Tag的日志写入同一个文件夹
+     *
+     * @param tag Tag
+     * @return 不含线程信息的Tag
+     */
+    static String getTrueTag(String tag) {
+        int threadInfoIndex = tag.indexOf('[');
+        return threadInfoIndex < 0 ? tag : tag.substring(0, threadInfoIndex);
+    }
+
+    /**
+     * 日志文件按Tag分文件夹存放，以创建时间命名：path/Tag/yyyy-MM-dd HH:mm.log
+     *
+     * @param path    日志根目录
+     * @param trueTag 不含线程信息的Tag
+     * @return 日志文件
+     */
+    static File newLogFile(String path, String trueTag) {
+        File logDir = new File(path, trueTag);
+        if (!logDir.exists()) {
+            logDir.mkdirs();
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        Date date = new Date(System.currentTimeMillis());
+        String fileName = format.format(date) + ".log";
+        return new File(logDir, fileName);
+    }
+
+    /**
+     * 滚动时同一分钟内可能已经存在同名文件，依次追加序号直到文件名（含压缩后的文件名）未被占用
+     *
+     * @param file 按时间命名的日志文件
+     * @return 尚不存在的日志文件
+     */
+    static File uniqueLogFile(File file) {
+        String baseName = file.getName().substring(0, file.getName().length() - ".log".length());
+        File result = file;
+        for (int i = 1; result.exists() || new File(result.getPath() + LogArchiver.GZIP_SUFFIX).exists(); i++) {
+            result = new File(file.getParentFile(), baseName + "-" + i + ".log");
+        }
+        return result;
+    }
+
+    /**
+     * 按本地时间对齐的下一个滚动时间点
+     *
+     * @param now      当前时间（毫秒）
+     * @param interval 滚动周期（毫秒），小于等于0时不按时间滚动
+     * @return 滚动时间点，不按时间滚动时为Long.MAX_VALUE
+     */
+    static long getRolloverAt(long now, long interval) {
+        if (interval <= 0) {
+            return Long.MAX_VALUE;
+        }
+        long localNow = now + TimeZone.getDefault().getOffset(now);
+        return now - localNow % interval + interval;
+    }
 
+    /**
+     * @param chars 字符
+     * @return 按UTF-8编码后的字节数
+     */
+    static int utf8Length(CharSequence chars) {
+        int length = 0;
+        for (int i = 0, n = chars.length(); i < n; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 与逐行输出保持一致：verbose按debug写入，assert按error写入
+     */
+    static int getFilePriority(int level) {
+        if (level == LogLevel.ASSERT) {
+            return LogLevel.ERROR;
+        } else if (level == LogLevel.INFO || level == LogLevel.WARN || level == LogLevel.ERROR) {
+            return level;
+        } else {
+            return LogLevel.DEBUG;
+        }
+    }
+
+    static String getPriorityName(int priority) {
+        if (priority == LogLevel.VERBOSE) {
+            return "V";
+        } else if (priority == LogLevel.INFO) {
+            return "I";
+        } else if (priority == LogLevel.DEBUG) {
+            return "D";
+        } else if (priority == LogLevel.WARN) {
+            return "W";
+        } else if (priority == LogLevel.ERROR) {
+            return "E";
+        } else {
+            return "V";
+        }
+    }
+
+    /**
+     * 立即将缓冲区中的日志写入文件
+     */
+    public void flush() {
+        fileStorage.flush();
+    }
+
+    /**
+     * 写入缓冲区中的日志并关闭日志目录下的所有日志文件，之后再写入日志会重新打开文件
+     */
+    @Override
+    public void close() {
+        fileStorage.close();
+    }
+
+    @Override
+    public boolean isFileSink() {
+        return true;
+    }
+
+    /**
+     * @return 写入文件时忽略的异常数量，所有FileLogger共用日志文件，因此也共用这个计数
+     */
+    @Override
+    public long getErrorCount() {
+        return FileStorage.errorCount.sum();
+    }
+
+
+    /**
+     * 同一个日志目录只有一个FileStorage，该目录下的所有FileLogger共用日志文件、定时刷新任务和滚动策略
+     */
     private static class FileStorage {
 
+        // 日志根目录对应的FileStorage
+        private static final HashMap<String, FileStorage> STORAGES = new HashMap<>();
+
+        private static ScheduledExecutorService flushScheduler;
+
+        // 写入、刷新和关闭文件时忽略的异常数量
+        private static final LongAdder errorCount = new LongAdder();
+
+        // 进程退出期间写入的日志不再缓冲
+        private static volatile boolean shuttingDown;
+
+        // 只保护mLogFiles的查找、打开和滚动，写入时只锁对应的日志文件，不同Tag的日志互不阻塞；
+        // 打开和关闭文件时会持有，使用ReentrantLock不占住虚拟线程的载体线程
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // 每个Tag对应一个长期打开的日志文件
+        private final HashMap<String, LogFileWriter> mLogFiles = new HashMap<>();
+
         private final String path;
 
-        private static final HashMap<String, File> mLogFiles = new HashMap<>();
+        // 以下两个字段在STORAGES的锁下修改：取所有FileLogger中最大的缓冲区和最短的刷新间隔
+        private volatile int bufferSize;
+
+        private long flushIntervalMillis;
+
+        private ScheduledFuture<?> flushTask;
+
+        // 设置了保留策略后才定时清理，每个目录只有一个清理任务
+        private ScheduledFuture<?> cleanUpTask;
 
-        public FileStorage(String path) {
+        volatile long maxFileSize;
+
+        volatile long rollingInterval;
+
+        volatile boolean compress;
+
+        volatile long maxTotalSize;
+
+        volatile long maxFileAge;
+
+        private static final int MAX_REUSED_CAPACITY = 64 * 1024;
+
+        private FileStorage(String path) {
             this.path = path;
         }
 
+        /**
+         * 不滚动的文件也会随时间过期，设置保留策略后每分钟检查一次
+         */
+        synchronized void scheduleCleanUp() {
+            if (cleanUpTask == null && (maxTotalSize > 0 || maxFileAge > 0)) {
+                cleanUpTask = getFlushScheduler().scheduleWithFixedDelay(this::cleanUp, 1, 1, TimeUnit.MINUTES);
+            }
+        }
+
+        /**
+         * 获取日志目录对应的FileStorage，每个目录最多只有一个定时刷新任务
+         *
+         * @param path                日志根目录
+         * @param bufferSize          写缓冲区大小（字符数）
+         * @param flushIntervalMillis 定时刷新间隔，小于等于0时不定时刷新
+         * @return FileStorage
+         */
+        static FileStorage forPath(String path, int bufferSize, long flushIntervalMillis) {
+            synchronized (STORAGES) {
+                FileStorage storage = STORAGES.get(path);
+                if (storage == null) {
+                    storage = new FileStorage(path);
+                    STORAGES.put(path, storage);
+                }
+                storage.bufferSize = Math.max(storage.bufferSize, bufferSize);
+                if (flushIntervalMillis > 0 && (storage.flushTask == null || flushIntervalMillis < storage.flushIntervalMillis)) {
+                    if (storage.flushTask != null) {
+                        storage.flushTask.cancel(false);
+                    }
+                    storage.flushIntervalMillis = flushIntervalMillis;
+                    storage.flushTask = getFlushScheduler().scheduleWithFixedDelay(storage::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+                return storage;
+            }
+        }
+
         /**
          * 将日志写入文件中
          *
@@ -80,64 +397,235 @@ public class FileLogger implements LoggerInterface {
          * @param tag   Tag
          * @param msg 消息内容
          */
-        public synchronized void write(int priority, String tag, String msg) {
-            String trueTag = tag.split("\\[")[0];
-            File logFile = mLogFiles.get(trueTag);
-            if (logFile == null) {
-                File logDir = new File(this.path, trueTag);
-                if (!logDir.exists()) {
-                    logDir.mkdirs();
-                }
+        public void write(int priority, String tag, String msg) {
+            write(priority, tag, msg, null);
+        }
 
-                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                Date date = new Date(System.currentTimeMillis());
-                String fileName = format.format(date) + ".log";
-                logFile = new File(logDir, fileName);
-                if (!logFile.exists()) {
+        /**
+         * 将整条日志的所有行一次写入文件中
+         *
+         * @param priority 优先级
+         * @param tag   Tag
+         * @param block 渲染好的日志
+         */
+        public void write(int priority, String tag, LogBlock block) {
+            write(priority, tag, null, block);
+        }
+
+        private void write(int priority, String tag, String msg, LogBlock block) {
+            String trueTag = getTrueTag(tag);
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    LogFileWriter logFile = getLogFile(trueTag, now);
+                    logFile.lock.lock();
                     try {
-                        logFile.createNewFile();
-                    } catch (IOException e) {
+                        // 拿到文件后被其它线程滚动关闭时，重新获取新文件
+                        if (logFile.closed) {
+                            continue;
+                        }
+                        StringBuilder lineBuilder = logFile.lineBuilder;
+                        lineBuilder.setLength(0);
+                        String linePrefix = logFile.lineDateFormat.format(new Date(now)) + ": " + getPriorityName(priority) + "/" + tag + ": ";
+                        if (block == null) {
+                            lineBuilder.append(linePrefix).append(msg).append("\r\n");
+                        } else {
+                            for (int i = 0; i < block.getLineCount(); i++) {
+                                lineBuilder.append(linePrefix);
+                                block.appendLine(i, lineBuilder);
+                                lineBuilder.append("\r\n");
+                            }
+                        }
+                        logFile.writer.append(lineBuilder);
+                        logFile.size += utf8Length(lineBuilder);
+                        // 错误日志立即落盘，其余日志在缓冲区满或定时任务触发时写入
+                        if (priority >= LogLevel.ERROR || shuttingDown) {
+                            logFile.writer.flush();
+                        }
+                        // 超长日志撑大的缓冲区不长期保留
+                        if (lineBuilder.capacity() > MAX_REUSED_CAPACITY) {
+                            lineBuilder.setLength(0);
+                            lineBuilder.trimToSize();
+                        }
+                        return;
+                    } finally {
+                        logFile.lock.unlock();
                     }
                 }
-                mLogFiles.put(trueTag, logFile);
+            } catch (Exception e) {
+                errorCount.increment();
+            } catch (Error error) {
+                errorCount.increment();
             }
-            BufferedWriter bufWriter = null;
-            OutputStreamWriter out = null;
+        }
+
+        /**
+         * 获取Tag当前的日志文件，需要滚动时关闭旧文件并打开新文件
+         */
+        private LogFileWriter getLogFile(String trueTag, long now) throws IOException {
+            lock.lock();
             try {
-                out = new OutputStreamWriter(new FileOutputStream(logFile, true), "UTF-8");
-                bufWriter = new BufferedWriter(out);
-                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-                Date date = new Date(System.currentTimeMillis());
-                String priorityName = null;
-                if (priority == LogLevel.VERBOSE) {
-                    priorityName = "V";
-                } else if (priority == LogLevel.INFO) {
-                    priorityName = "I";
-                } else if (priority == LogLevel.DEBUG) {
-                    priorityName = "D";
-                } else if (priority == LogLevel.WARN) {
-                    priorityName = "W";
-                } else if (priority == LogLevel.ERROR) {
-                    priorityName = "E";
-                } else {
-                    priorityName = "V";
+                LogFileWriter logFile = mLogFiles.get(trueTag);
+                boolean rolled = false;
+                if (logFile != null && (now >= logFile.rolloverAt || (maxFileSize > 0 && logFile.size >= maxFileSize))) {
+                    mLogFiles.remove(trueTag);
+                    rollOver(logFile);
+                    logFile = null;
+                    rolled = true;
                 }
-                bufWriter.write(format.format(date) + ": " + priorityName + "/" + tag + ": " + msg + "\r\n");
-            } catch (Exception e) {
-            } catch (Error error) {
+                if (logFile == null) {
+                    logFile = openLogFile(trueTag, now, rolled);
+                    mLogFiles.put(trueTag, logFile);
+                }
+                return logFile;
             } finally {
-                if (bufWriter != null) {
-                    try {
-                        bufWriter.close();
-                    } catch (Exception e) {
+                lock.unlock();
+            }
+        }
+
+        public void flush() {
+            for (LogFileWriter logFile : getLogFiles()) {
+                logFile.lock.lock();
+                try {
+                    if (!logFile.closed) {
+                        logFile.writer.flush();
                     }
+                } catch (IOException e) {
+                    errorCount.increment();
+                } finally {
+                    logFile.lock.unlock();
                 }
-                if (out != null) {
-                    try {
-                        out.close();
-                    } catch (Exception e) {
-                    }
+            }
+        }
+
+        private List<LogFileWriter> getLogFiles() {
+            lock.lock();
+            try {
+                return new ArrayList<>(mLogFiles.values());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void close() {
+            lock.lock();
+            try {
+                for (LogFileWriter logFile : mLogFiles.values()) {
+                    logFile.close();
+                }
+                mLogFiles.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static void closeAll() {
+            List<FileStorage> storages;
+            synchronized (STORAGES) {
+                storages = new ArrayList<>(STORAGES.values());
+            }
+            for (FileStorage storage : storages) {
+                storage.close();
+            }
+        }
+
+        private LogFileWriter openLogFile(String trueTag, long now, boolean rolled) throws IOException {
+            File file = newLogFile(this.path, trueTag);
+            // 滚动后不能续写刚关闭（可能正在压缩）的文件
+            if (rolled || (maxFileSize > 0 && file.length() >= maxFileSize)) {
+                file = uniqueLogFile(file);
+            }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), bufferSize);
+            return new LogFileWriter(file, writer, file.length(), getRolloverAt(now, rollingInterval));
+        }
+
+        /**
+         * 关闭当前文件，压缩和清理交给后台线程，下一次写入时打开新文件
+         */
+        private void rollOver(LogFileWriter logFile) {
+            logFile.close();
+            if (compress) {
+                LogArchiver.compress(logFile.file);
+            }
+            cleanUp();
+        }
+
+        private void cleanUp() {
+            if (maxTotalSize <= 0 && maxFileAge <= 0) {
+                return;
+            }
+            List<File> activeFiles = new ArrayList<>();
+            lock.lock();
+            try {
+                for (LogFileWriter logFile : mLogFiles.values()) {
+                    activeFiles.add(logFile.file);
                 }
+            } finally {
+                lock.unlock();
+            }
+            LogArchiver.cleanUp(new File(path), maxTotalSize, maxFileAge, activeFiles);
+        }
+
+        /**
+         * 所有FileStorage共用一个定时刷新线程，并在进程退出时关闭全部日志文件
+         */
+        private static synchronized ScheduledExecutorService getFlushScheduler() {
+            if (flushScheduler == null) {
+                flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "RCLog-FileFlusher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                ShutdownHooks.registerClose(() -> {
+                    shuttingDown = true;
+                    closeAll();
+                });
+            }
+            return flushScheduler;
+        }
+    }
+
+    private static class LogFileWriter {
+
+        private final File file;
+
+        private final Writer writer;
+
+        // 已写入的字节数，在FileStorage的lock下判断滚动时读取
+        private volatile long size;
+
+        // 按时间滚动的时间点
+        private final long rolloverAt;
+
+        // 写入、刷新和关闭这个文件时持有
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // 以下字段只在持有lock时使用
+        private final StringBuilder lineBuilder = new StringBuilder(256);
+
+        private final SimpleDateFormat lineDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+        private boolean closed;
+
+        LogFileWriter(File file, Writer writer, long size, long rolloverAt) {
+            this.file = file;
+            this.writer = writer;
+            this.size = size;
+            this.rolloverAt = rolloverAt;
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                writer.close();
+            } catch (IOException e) {
+                FileStorage.errorCount.increment();
+            } finally {
+                lock.unlock();
             }
         }
     }
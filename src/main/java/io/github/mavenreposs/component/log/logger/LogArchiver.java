@@ -0,0 +1,134 @@
+package io.github.mavenreposs.component.log.logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 日志归档
+ * <p>
+ * 在后台线程中压缩已经滚动的日志文件，并按总大小和文件存活时间清理日志根目录，
+ * 写日志的线程只负责提交任务，不会等待压缩和删除。
+ * </p>
+ */
+class LogArchiver {
+
+    static final String GZIP_SUFFIX = ".gz";
+
+    private static ExecutorService executor;
+
+    private LogArchiver() {
+    }
+
+    /**
+     * 压缩已经关闭的日志文件，压缩完成后删除原文件
+     *
+     * @param file 已经关闭的日志文件
+     */
+    static void compress(File file) {
+        getExecutor().execute(() -> gzip(file));
+    }
+
+    /**
+     * 清理日志根目录下超过保留时间的文件，以及超过总大小上限的最旧文件
+     *
+     * @param rootDir     日志根目录，即storages/RCLog
+     * @param maxTotalSize 所有日志文件的总大小上限（字节），小于等于0时不限制
+     * @param maxFileAge   日志文件的最长保留时间（毫秒），小于等于0时不限制
+     * @param activeFiles  正在写入的文件，不会被清理
+     */
+    static void cleanUp(File rootDir, long maxTotalSize, long maxFileAge, Collection<File> activeFiles) {
+        if (maxTotalSize <= 0 && maxFileAge <= 0) {
+            return;
+        }
+        getExecutor().execute(() -> retain(rootDir, maxTotalSize, maxFileAge, activeFiles));
+    }
+
+    private static void gzip(File file) {
+        File target = new File(file.getPath() + GZIP_SUFFIX);
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(target), buffer.length)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            target.delete();
+            return;
+        }
+        target.setLastModified(file.lastModified());
+        file.delete();
+    }
+
+    private static void retain(File rootDir, long maxTotalSize, long maxFileAge, Collection<File> activeFiles) {
+        File[] tagDirs = rootDir.listFiles(File::isDirectory);
+        if (tagDirs == null) {
+            return;
+        }
+        List<File> files = new ArrayList<>();
+        for (File tagDir : tagDirs) {
+            File[] logFiles = tagDir.listFiles((dir, name) -> name.endsWith(".log") || name.endsWith(".log" + GZIP_SUFFIX));
+            if (logFiles == null) {
+                continue;
+            }
+            for (File logFile : logFiles) {
+                if (!activeFiles.contains(logFile)) {
+                    files.add(logFile);
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long totalSize = 0;
+        List<File> retained = new ArrayList<>(files.size());
+        for (File file : files) {
+            if (maxFileAge > 0 && now - file.lastModified() > maxFileAge) {
+                file.delete();
+            } else {
+                retained.add(file);
+                totalSize += file.length();
+            }
+        }
+        if (maxTotalSize <= 0) {
+            return;
+        }
+
+        //正在写入的文件也计入总大小，超出上限时从最旧的文件开始删除
+        for (File file : activeFiles) {
+            totalSize += file.length();
+        }
+        retained.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : retained) {
+            if (totalSize <= maxTotalSize) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalSize -= length;
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "RCLog-FileArchiver");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,269 @@
+package io.github.mavenreposs.component.log.logger;
+
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.LogLevel;
+import io.github.mavenreposs.component.log.contracts.AbstractLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 内存映射文件输出Log
+ * <p>
+ * 与{@link FileLogger}的目录结构和行格式相同，但日志直接编码进文件的内存映射区域，
+ * 写一行日志只是一次内存拷贝，不需要系统调用，适合输出量很大的DEBUG日志。
+ * </p>
+ * <p>
+ * 映射区域写满后会映射下一段区域，关闭时把文件截断到实际长度。
+ * 进程退出时关闭后不再接收日志，之后写入的日志计入错误数量；
+ * 只有进程异常退出来不及关闭时，文件末尾才会留下未使用区域的空字节。
+ * </p>
+ */
+public class MappedFileLogger extends AbstractLogger<MappedFileLogger> {
+
+    // 默认每次映射的区域大小（字节）
+    public static final int DEFAULT_REGION_SIZE = 8 * 1024 * 1024;
+
+    private final String path;
+
+    private final int regionSize;
+
+    // 输出时忽略的异常数量
+    private final LongAdder errorCount = new LongAdder();
+
+    // 写入、刷新和关闭时持有，虚拟线程在等待或写入时不会占住载体线程
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final HashMap<String, MappedLogFile> mLogFiles = new HashMap<>();
+
+    // 进程退出时关闭后为true，不再打开新的映射区域，只在持有lock时使用
+    private boolean shutdown;
+
+    // 复用的行缓冲区、时间格式和编码器，只在持有lock时使用
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+
+    private final SimpleDateFormat lineDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    public MappedFileLogger() {
+        this(DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * @param regionSize 每次映射的区域大小（字节）
+     */
+    public MappedFileLogger(int regionSize) {
+        this(new File("storages", "RCLog"), regionSize);
+    }
+
+    /**
+     * @param rootDir    日志根目录
+     * @param regionSize 每次映射的区域大小（字节）
+     */
+    MappedFileLogger(File rootDir, int regionSize) {
+        this.path = rootDir.getAbsolutePath();
+        this.regionSize = Math.max(regionSize, 4096);
+        ShutdownHooks.register(this, MappedFileLogger::shutdown);
+    }
+
+    @Override
+    public boolean isFileSink() {
+        return true;
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public void verbose(String tag, String message) {
+        debug(tag, message);
+    }
+
+    @Override
+    public void debug(String tag, String message) {
+        write(LogLevel.DEBUG, tag, message);
+    }
+
+    @Override
+    public void info(String tag, String message) {
+        write(LogLevel.INFO, tag, message);
+    }
+
+    @Override
+    public void warn(String tag, String message) {
+        write(LogLevel.WARN, tag, message);
+    }
+
+    @Override
+    public void error(String tag, String message) {
+        write(LogLevel.ERROR, tag, message);
+    }
+
+    @Override
+    public void assertError(String tag, String message) {
+        error(tag, message);
+    }
+
+    /**
+     * 整条日志的所有行一次编码进映射区域
+     */
+    @Override
+    public void logBlock(int level, String tag, LogBlock block) {
+        write(FileLogger.getFilePriority(level), tag, null, block);
+    }
+
+    /**
+     * 将映射区域中的内容强制写入磁盘
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            for (MappedLogFile logFile : mLogFiles.values()) {
+                logFile.region.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭所有日志文件并截断到实际长度，之后再写入日志会重新打开文件
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            for (MappedLogFile logFile : mLogFiles.values()) {
+                try {
+                    logFile.close();
+                } catch (IOException e) {
+                    errorCount.increment();
+                }
+            }
+            mLogFiles.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 进程退出时关闭所有日志文件，之后写入的日志不再打开文件
+     */
+    void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(int priority, String tag, String msg) {
+        write(priority, tag, msg, null);
+    }
+
+    private void write(int priority, String tag, String msg, LogBlock block) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                errorCount.increment();
+                return;
+            }
+            String trueTag = FileLogger.getTrueTag(tag);
+            MappedLogFile logFile = mLogFiles.get(trueTag);
+            if (logFile == null) {
+                logFile = new MappedLogFile(FileLogger.newLogFile(path, trueTag), regionSize);
+                mLogFiles.put(trueTag, logFile);
+            }
+            lineBuilder.setLength(0);
+            String linePrefix = lineDateFormat.format(new Date(System.currentTimeMillis())) + ": "
+                    + FileLogger.getPriorityName(priority) + "/" + tag + ": ";
+            if (block == null) {
+                lineBuilder.append(linePrefix).append(msg).append("\r\n");
+            } else {
+                for (int i = 0; i < block.getLineCount(); i++) {
+                    lineBuilder.append(linePrefix);
+                    block.appendLine(i, lineBuilder);
+                    lineBuilder.append("\r\n");
+                }
+            }
+            logFile.append(CharBuffer.wrap(lineBuilder), encoder);
+        } catch (Exception e) {
+            errorCount.increment();
+        } catch (Error error) {
+            errorCount.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class MappedLogFile {
+
+        private final FileChannel channel;
+
+        private final int regionSize;
+
+        // 当前映射区域在文件中的起始位置
+        private long regionStart;
+
+        private MappedByteBuffer region;
+
+        MappedLogFile(File file, int regionSize) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.regionSize = regionSize;
+            map(channel.size());
+        }
+
+        /**
+         * 将字符直接编码到映射区域中，区域写满时映射下一段继续写
+         */
+        void append(CharBuffer chars, CharsetEncoder encoder) throws IOException {
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, region, true);
+                if (result.isOverflow()) {
+                    map(regionStart + region.position());
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    break;
+                }
+            }
+            while (encoder.flush(region).isOverflow()) {
+                map(regionStart + region.position());
+            }
+        }
+
+        void close() throws IOException {
+            long length = regionStart + region.position();
+            region = null;
+            channel.truncate(length);
+            channel.close();
+        }
+
+        private void map(long start) throws IOException {
+            regionStart = start;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, start, regionSize);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package io.github.mavenreposs.component.log.logger;
+
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.LogEvent;
+import io.github.mavenreposs.component.log.LogLevel;
+import io.github.mavenreposs.component.log.contracts.AbstractLogger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 结构化的Json行日志（NDJSON）
+ * <p>
+ * 每条日志输出一行Json对象，时间、级别、Tag、线程、方法栈、拼接内容和消息分别是单独的字段，不包含边框，
+ * 日志采集程序不需要再解析文本格式。字段名只编码一次，字符串直接转义编码到复用的字节缓冲区。
+ * </p>
+ * <pre>
+ * {"timestamp":1760752800123,"level":"INFO","tag":"RCLOG","thread":"main","frames":["Main.main(Main.java:12)"],"sections":["..."],"message":"..."}
+ * </pre>
+ */
+public class NdjsonLogger extends AbstractLogger<NdjsonLogger> {
+
+    // 默认缓冲区大小（字节）
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // 默认定时刷新间隔（毫秒）
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final byte[] FIELD_TIMESTAMP = ascii("{\"timestamp\":");
+
+    private static final byte[] FIELD_LEVEL = ascii(",\"level\":\"");
+
+    private static final byte[] FIELD_TAG = ascii("\",\"tag\":");
+
+    private static final byte[] FIELD_THREAD = ascii(",\"thread\":");
+
+    private static final byte[] FIELD_FRAMES = ascii(",\"frames\":[");
+
+    private static final byte[] FIELD_SECTIONS = ascii(",\"sections\":[");
+
+    private static final byte[] FIELD_MESSAGE = ascii(",\"message\":");
+
+    private static final byte[] END_RECORD = ascii("}\n");
+
+    // 下标为级别，无效级别按VERBOSE输出
+    private static final byte[][] LEVEL_NAMES = new byte[LogLevel.NONE + 1][];
+
+    static {
+        for (int level = 0; level < LEVEL_NAMES.length; level++) {
+            LEVEL_NAMES[level] = ascii(LogLevel.getName(Math.max(level, LogLevel.VERBOSE)));
+        }
+    }
+
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private static ScheduledExecutorService flushScheduler;
+
+    private final OutputStream out;
+
+    private final int bufferSize;
+
+    // 是否写入日志文件
+    private final boolean fileSink;
+
+    // 定时刷新任务，没有定时刷新时为null
+    private final ScheduledFuture<?> flushTask;
+
+    // 输出时忽略的异常数量
+    private final LongAdder errorCount = new LongAdder();
+
+    // 写入、刷新和关闭时持有，虚拟线程在等待或写入时不会占住载体线程
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 以下缓冲区只在持有lock时使用
+    private byte[] buffer;
+
+    private int position;
+
+    // 正在编码的日志在缓冲区中的起始位置，之前都是完整的日志
+    private int recordStart;
+
+    /**
+     * 日志文件保存在storages/RCLog/ndjson目录下
+     */
+    public NdjsonLogger() throws IOException {
+        this(newNdjsonFile());
+    }
+
+    /**
+     * @param file 日志文件，已经存在时追加
+     */
+    public NdjsonLogger(File file) throws IOException {
+        this(new FileOutputStream(file, true), DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, true);
+    }
+
+    /**
+     * @param out                 输出流，例如文件或者标准输出
+     * @param bufferSize          缓冲区大小（字节）
+     * @param flushIntervalMillis 定时刷新间隔，小于等于0时只在缓冲区写满或输出错误日志时刷新
+     */
+    public NdjsonLogger(OutputStream out, int bufferSize, long flushIntervalMillis) {
+        this(out, bufferSize, flushIntervalMillis, false);
+    }
+
+    /**
+     * @param out                 输出流，例如文件或者标准输出
+     * @param bufferSize          缓冲区大小（字节）
+     * @param flushIntervalMillis 定时刷新间隔，小于等于0时只在缓冲区写满或输出错误日志时刷新
+     * @param fileSink            输出流是否是日志文件，是日志文件时只在需要输出到文件时接收日志
+     */
+    public NdjsonLogger(OutputStream out, int bufferSize, long flushIntervalMillis, boolean fileSink) {
+        this.out = out;
+        this.fileSink = fileSink;
+        this.bufferSize = Math.max(bufferSize, 1024);
+        this.buffer = new byte[this.bufferSize];
+        this.flushTask = flushIntervalMillis > 0
+                ? getFlushScheduler().scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS)
+                : null;
+        ShutdownHooks.register(this, NdjsonLogger::flush);
+    }
+
+    @Override
+    public boolean isFileSink() {
+        return fileSink;
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public void verbose(String tag, String message) {
+        write(LogLevel.VERBOSE, tag, message);
+    }
+
+    @Override
+    public void debug(String tag, String message) {
+        write(LogLevel.DEBUG, tag, message);
+    }
+
+    @Override
+    public void info(String tag, String message) {
+        write(LogLevel.INFO, tag, message);
+    }
+
+    @Override
+    public void warn(String tag, String message) {
+        write(LogLevel.WARN, tag, message);
+    }
+
+    @Override
+    public void error(String tag, String message) {
+        write(LogLevel.ERROR, tag, message);
+    }
+
+    @Override
+    public void assertError(String tag, String message) {
+        write(LogLevel.ASSERT, tag, message);
+    }
+
+    @Override
+    public void logBlock(int level, String tag, LogBlock block) {
+        write(level, tag, block.getText().toString());
+    }
+
+    /**
+     * 直接使用日志的各个字段，不使用渲染好的带边框文本
+     */
+    @Override
+    public void logEvent(LogEvent event, LogBlock block) {
+        write(event.getLogType(), event.getTimestamp(), event.getPlainTag(), event.getThreadName(), event.getCallerFrames(), event.getAppendMsgList(), event.getMessage());
+    }
+
+    /**
+     * 将缓冲区中的日志写到输出流
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            writeBuffer(position);
+            out.flush();
+        } catch (IOException e) {
+            errorCount.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 停止定时刷新，写出缓冲区中的日志并关闭输出流，之后的日志会被忽略
+     */
+    @Override
+    public void close() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        lock.lock();
+        try {
+            flush();
+            try {
+                out.close();
+            } catch (IOException e) {
+                errorCount.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(int level, String tag, String message) {
+        write(level, System.currentTimeMillis(), tag, null, null, null, message);
+    }
+
+    private void write(int level, long timestamp, String tag, String thread,
+                       StackTraceElement[] frames, List<String> sections, String message) {
+        lock.lock();
+        try {
+            recordStart = position;
+            try {
+                append(FIELD_TIMESTAMP);
+                appendAscii(Long.toString(timestamp));
+                append(FIELD_LEVEL);
+                append(LEVEL_NAMES[level >= 0 && level < LEVEL_NAMES.length ? level : 0]);
+                append(FIELD_TAG);
+                appendString(tag);
+                if (thread != null) {
+                    append(FIELD_THREAD);
+                    appendString(thread);
+                }
+                if (frames != null && frames.length > 0) {
+                    append(FIELD_FRAMES);
+                    for (int i = 0; i < frames.length; i++) {
+                        if (i > 0) {
+                            appendByte(',');
+                        }
+                        appendString(frames[i].toString());
+                    }
+                    appendByte(']');
+                }
+                if (sections != null && !sections.isEmpty()) {
+                    append(FIELD_SECTIONS);
+                    for (int i = 0; i < sections.size(); i++) {
+                        if (i > 0) {
+                            appendByte(',');
+                        }
+                        appendString(sections.get(i));
+                    }
+                    appendByte(']');
+                }
+                append(FIELD_MESSAGE);
+                appendString(message);
+                append(END_RECORD);
+                recordStart = position;
+                if (level >= LogLevel.ERROR) {
+                    writeBuffer(position);
+                    out.flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                //没有编码完的日志整条丢弃，输出流中不会留下半行
+                position = recordStart;
+                errorCount.increment();
+            } finally {
+                // 超长日志撑大的缓冲区不长期保留
+                if (buffer.length > bufferSize && position <= bufferSize) {
+                    byte[] shrunk = new byte[bufferSize];
+                    System.arraycopy(buffer, 0, shrunk, 0, position);
+                    buffer = shrunk;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 转义并按UTF-8编码Json字符串，包括两边的引号
+     */
+    private void appendString(String value) throws IOException {
+        if (value == null) {
+            appendAscii("null");
+            return;
+        }
+        appendByte('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    ensureCapacity(2);
+                    buffer[position++] = '\\';
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x20) {
+                    appendControl(c);
+                } else {
+                    appendByte(c);
+                }
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符替换为'?'
+                appendByte('?');
+            } else {
+                ensureCapacity(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        appendByte('"');
+    }
+
+    private void appendControl(char c) throws IOException {
+        ensureCapacity(6);
+        buffer[position++] = '\\';
+        if (c == '\n') {
+            buffer[position++] = 'n';
+        } else if (c == '\r') {
+            buffer[position++] = 'r';
+        } else if (c == '\t') {
+            buffer[position++] = 't';
+        } else {
+            buffer[position++] = 'u';
+            buffer[position++] = '0';
+            buffer[position++] = '0';
+            buffer[position++] = HEX[c >> 4];
+            buffer[position++] = HEX[c & 0xF];
+        }
+    }
+
+    private void appendAscii(String value) throws IOException {
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void appendByte(int b) throws IOException {
+        ensureCapacity(1);
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * 缓冲区剩余空间不足时先把之前完整的日志写到输出流，正在编码的日志移到缓冲区开头，仍然不够时扩大缓冲区，
+     * 不会把半条日志写到输出流
+     */
+    private void ensureCapacity(int length) throws IOException {
+        if (buffer.length - position >= length) {
+            return;
+        }
+        writeBuffer(recordStart);
+        if (buffer.length - position < length) {
+            buffer = Arrays.copyOf(buffer, position + Math.max(length, bufferSize));
+        }
+    }
+
+    /**
+     * 写出缓冲区开头length字节的完整日志，写入失败时同样丢弃，避免缓冲区一直是满的
+     */
+    private void writeBuffer(int length) throws IOException {
+        if (length <= 0) {
+            return;
+        }
+        try {
+            out.write(buffer, 0, length);
+        } finally {
+            System.arraycopy(buffer, length, buffer, 0, position - length);
+            position -= length;
+            recordStart -= length;
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static File newNdjsonFile() {
+        File file = FileLogger.newLogFile(new File("storages", "RCLog").getAbsolutePath(), "ndjson");
+        String baseName = file.getName().substring(0, file.getName().length() - ".log".length());
+        return new File(file.getParentFile(), baseName + ".ndjson");
+    }
+
+    private static synchronized ScheduledExecutorService getFlushScheduler() {
+        if (flushScheduler == null) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "RCLog-NdjsonFlusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flushScheduler;
+    }
+}
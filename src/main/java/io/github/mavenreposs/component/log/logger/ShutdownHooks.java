@@ -0,0 +1,121 @@
+package io.github.mavenreposs.component.log.logger;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 输出工具共用的关闭钩子
+ * <p>
+ * 进程中只注册一个关闭钩子，每个输出工具只登记一个弱引用，退出时依次执行登记的操作。
+ * 不再使用的输出工具可以被正常回收，不会因为关闭钩子一直留在内存中。
+ * </p>
+ * <p>
+ * JVM会同时运行所有关闭钩子，所以退出时的操作都放在这一个钩子中按顺序执行：
+ * 先输出异步队列中剩余的日志，再刷新和关闭输出工具。
+ * </p>
+ */
+public final class ShutdownHooks {
+
+    // 最先执行，输出异步队列中剩余的日志
+    private static final List<Runnable> DRAINS = new CopyOnWriteArrayList<>();
+
+    private static final Set<Hook<?>> HOOKS = ConcurrentHashMap.newKeySet();
+
+    // 不属于某个输出工具实例的关闭操作，最后执行
+    private static final List<Runnable> CLOSES = new CopyOnWriteArrayList<>();
+
+    // 输出工具被回收后，对应的登记从这里取出并移除
+    private static final ReferenceQueue<Object> COLLECTED = new ReferenceQueue<>();
+
+    private static boolean shutdownHookAdded;
+
+    private ShutdownHooks() {
+    }
+
+    /**
+     * @param owner  输出工具
+     * @param action 进程退出时执行的操作，不能引用owner本身
+     * @param <T>    输出工具类型
+     */
+    static synchronized <T> void register(T owner, Consumer<? super T> action) {
+        Reference<?> collected;
+        while ((collected = COLLECTED.poll()) != null) {
+            HOOKS.remove(collected);
+        }
+        HOOKS.add(new Hook<>(owner, action));
+        addShutdownHook();
+    }
+
+    /**
+     * 进程退出时在刷新和关闭输出工具之前执行
+     *
+     * @param drain 输出异步队列中剩余日志的操作
+     */
+    public static synchronized void registerDrain(Runnable drain) {
+        DRAINS.add(drain);
+        addShutdownHook();
+    }
+
+    /**
+     * @param close 进程退出时在所有输出工具之后执行的关闭操作
+     */
+    static synchronized void registerClose(Runnable close) {
+        CLOSES.add(close);
+        addShutdownHook();
+    }
+
+    private static void addShutdownHook() {
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ShutdownHooks::runAll, "RCLog-Shutdown"));
+            shutdownHookAdded = true;
+        }
+    }
+
+    private static void runAll() {
+        for (Runnable drain : DRAINS) {
+            run(drain);
+        }
+        for (Hook<?> hook : HOOKS) {
+            hook.run();
+        }
+        for (Runnable close : CLOSES) {
+            run(close);
+        }
+    }
+
+    private static void run(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            //一个操作失败不影响其它操作
+        }
+    }
+
+    private static final class Hook<T> extends WeakReference<T> {
+
+        private final Consumer<? super T> action;
+
+        Hook(T owner, Consumer<? super T> action) {
+            super(owner, COLLECTED);
+            this.action = action;
+        }
+
+        void run() {
+            T owner = get();
+            if (owner == null) {
+                return;
+            }
+            try {
+                action.accept(owner);
+            } catch (RuntimeException e) {
+                //一个输出工具关闭失败不影响其它输出工具
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package io.github.mavenreposs.component.log.logger;
+
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.LogLevel;
+import io.github.mavenreposs.component.log.contracts.AbstractLogger;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 高吞吐的控制台输出Log
+ * <p>
+ * 不经过slf4j和System.out，日志按{@link FileLogger}的行格式直接编码为UTF-8写入缓冲区，
+ * 缓冲区写满、定时刷新、输出错误日志以及进程退出时才一次性写到标准输出，适合由采集程序收集标准输出的容器环境。
+ * </p>
+ */
+public class StdoutLogger extends AbstractLogger<StdoutLogger> {
+
+    // 默认缓冲区大小（字节）
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    // 默认定时刷新间隔（毫秒）
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+
+    private static ScheduledExecutorService flushScheduler;
+
+    private final OutputStream out;
+
+    // 定时刷新任务，关闭时取消
+    private final ScheduledFuture<?> flushTask;
+
+    // 输出时忽略的异常数量
+    private final LongAdder errorCount = new LongAdder();
+
+    // 写入、刷新和关闭时持有，虚拟线程在等待或写入时不会占住载体线程
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 以下缓冲区、时间格式和编码器只在持有lock时使用
+    private final ByteBuffer buffer;
+
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+
+    private final SimpleDateFormat lineDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    public StdoutLogger() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param bufferSize          缓冲区大小（字节）
+     * @param flushIntervalMillis 定时刷新间隔，小于等于0时只在缓冲区写满或输出错误日志时刷新
+     */
+    public StdoutLogger(int bufferSize, long flushIntervalMillis) {
+        this(new FileOutputStream(FileDescriptor.out), bufferSize, flushIntervalMillis);
+    }
+
+    StdoutLogger(OutputStream out, int bufferSize, long flushIntervalMillis) {
+        this.out = out;
+        this.buffer = ByteBuffer.allocate(Math.max(bufferSize, 1024));
+        this.flushTask = flushIntervalMillis > 0
+                ? getFlushScheduler().scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS)
+                : null;
+        ShutdownHooks.register(this, StdoutLogger::flush);
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public void verbose(String tag, String message) {
+        write(LogLevel.VERBOSE, tag, message, null);
+    }
+
+    @Override
+    public void debug(String tag, String message) {
+        write(LogLevel.DEBUG, tag, message, null);
+    }
+
+    @Override
+    public void info(String tag, String message) {
+        write(LogLevel.INFO, tag, message, null);
+    }
+
+    @Override
+    public void warn(String tag, String message) {
+        write(LogLevel.WARN, tag, message, null);
+    }
+
+    @Override
+    public void error(String tag, String message) {
+        write(LogLevel.ERROR, tag, message, null);
+    }
+
+    @Override
+    public void assertError(String tag, String message) {
+        write(LogLevel.ASSERT, tag, message, null);
+    }
+
+    @Override
+    public void logBlock(int level, String tag, LogBlock block) {
+        write(level, tag, null, block);
+    }
+
+    /**
+     * 将缓冲区中的日志写到标准输出
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            writeBuffer();
+            out.flush();
+        } catch (IOException e) {
+            errorCount.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写出缓冲区中的日志并取消定时刷新，不会关闭标准输出，之后写入的日志在缓冲区写满或输出错误日志时写出
+     */
+    @Override
+    public void close() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flush();
+    }
+
+    private void write(int priority, String tag, String msg, LogBlock block) {
+        lock.lock();
+        try {
+            lineBuilder.setLength(0);
+            String linePrefix = lineDateFormat.format(new Date(System.currentTimeMillis())) + ": "
+                    + FileLogger.getPriorityName(priority) + "/" + tag + ": ";
+            if (block == null) {
+                lineBuilder.append(linePrefix).append(msg).append('\n');
+            } else {
+                for (int i = 0; i < block.getLineCount(); i++) {
+                    lineBuilder.append(linePrefix);
+                    block.appendLine(i, lineBuilder);
+                    lineBuilder.append('\n');
+                }
+            }
+            encode(CharBuffer.wrap(lineBuilder));
+            if (priority >= LogLevel.ERROR) {
+                writeBuffer();
+                out.flush();
+            }
+        } catch (Exception e) {
+            errorCount.increment();
+        } catch (Error error) {
+            errorCount.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 直接编码到缓冲区，缓冲区写满时先写到标准输出再继续编码
+     */
+    private void encode(CharBuffer chars) throws IOException {
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                writeBuffer();
+            } else {
+                break;
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            writeBuffer();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() > 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getFlushScheduler() {
+        if (flushScheduler == null) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "RCLog-StdoutFlusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flushScheduler;
+    }
+}
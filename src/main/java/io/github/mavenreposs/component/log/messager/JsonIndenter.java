@@ -0,0 +1,287 @@
+package io.github.mavenreposs.component.log.messager;
+
+import io.github.mavenreposs.component.log.LogUtil;
+
+import java.util.Arrays;
+
+/**
+ * 流式的Json缩进格式化
+ * <p>
+ * 逐个词法单元扫描输入，同时完成校验和缩进，不构建JSONObject/JSONArray，
+ * 字符串和数字原样输出，key的顺序保持不变。额外占用的内存只与嵌套深度有关，与内容大小无关。
+ * </p>
+ */
+final class JsonIndenter {
+
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+
+    private final String json;
+
+    private final int indent;
+
+    private final StringBuilder out;
+
+    //输出长度上限，超出后停止格式化
+    private final int limit;
+
+    private boolean truncated;
+
+    private int pos;
+
+    //当前所在的容器类型，长度即嵌套深度
+    private byte[] stack = new byte[16];
+
+    private int depth;
+
+    private JsonIndenter(String json, int indent, int limit, StringBuilder out) {
+        this.json = json;
+        this.indent = indent;
+        this.limit = limit;
+        this.out = out;
+    }
+
+    /**
+     * 格式化Json对象或数组
+     *
+     * @param json   Json字符串
+     * @param indent 缩进空格数
+     * @return 格式化后的内容，不是合法的Json对象或数组时返回null
+     */
+    static String indent(String json, int indent) {
+        return indent(json, indent, 0);
+    }
+
+    /**
+     * 格式化Json对象或数组，输出超过长度上限时立即停止，并注明原始大小
+     *
+     * @param json      Json字符串
+     * @param indent    缩进空格数
+     * @param maxLength 输出长度上限（字符数），小于等于0时不限制
+     * @return 格式化后的内容，在上限之内发现不是合法的Json对象或数组时返回null
+     */
+    static String indent(String json, int indent, int maxLength) {
+        int limit = maxLength > 0 ? maxLength : Integer.MAX_VALUE;
+        StringBuilder out = new StringBuilder(Math.min(limit, json.length() + (json.length() >> 2)));
+        JsonIndenter indenter = new JsonIndenter(json, indent, limit, out);
+        if (!indenter.format()) {
+            return null;
+        }
+        if (indenter.truncated) {
+            out.setLength(Math.min(out.length(), limit));
+            LogUtil.appendTruncatedMarker(out, json.length());
+        }
+        return out.toString();
+    }
+
+    private boolean format() {
+        skipWhitespace();
+        if (pos >= json.length() || (json.charAt(pos) != '{' && json.charAt(pos) != '[')) {
+            return false;
+        }
+        boolean expectValue = true;
+        while (true) {
+            if (out.length() >= limit) {
+                truncated = true;
+                return true;
+            }
+            if (expectValue) {
+                char c = peek();
+                if (c == '{' || c == '[') {
+                    out.append(c);
+                    pos++;
+                    skipWhitespace();
+                    char close = c == '{' ? '}' : ']';
+                    if (peek() == close) {
+                        out.append(close);
+                        pos++;
+                        expectValue = false;
+                        continue;
+                    }
+                    push(c == '{' ? OBJECT : ARRAY);
+                    newLine();
+                    if (c == '{' && !key()) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (!scalar()) {
+                    return false;
+                }
+                expectValue = false;
+                continue;
+            }
+
+            skipWhitespace();
+            if (depth == 0) {
+                //顶层的对象或数组之后不能再有其它内容
+                return pos == json.length();
+            }
+            char c = peek();
+            byte container = stack[depth - 1];
+            if (c == ',') {
+                out.append(',');
+                pos++;
+                newLine();
+                skipWhitespace();
+                if (container == OBJECT && !key()) {
+                    return false;
+                }
+                expectValue = true;
+            } else if ((c == '}' && container == OBJECT) || (c == ']' && container == ARRAY)) {
+                depth--;
+                newLine();
+                out.append(c);
+                pos++;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 输出对象的key和冒号，之后需要一个值
+     */
+    private boolean key() {
+        skipWhitespace();
+        if (peek() != '"' || !string()) {
+            return false;
+        }
+        skipWhitespace();
+        if (peek() != ':') {
+            return false;
+        }
+        pos++;
+        out.append(": ");
+        skipWhitespace();
+        return true;
+    }
+
+    private boolean scalar() {
+        char c = peek();
+        if (c == '"') {
+            return string();
+        } else if (c == 't') {
+            return literal("true");
+        } else if (c == 'f') {
+            return literal("false");
+        } else if (c == 'n') {
+            return literal("null");
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            return number();
+        }
+        return false;
+    }
+
+    private boolean string() {
+        int start = pos;
+        pos++;
+        int length = json.length();
+        while (pos < length) {
+            char c = json.charAt(pos++);
+            if (c == '"') {
+                append(start, pos);
+                return true;
+            } else if (c == '\\') {
+                if (pos >= length) {
+                    return false;
+                }
+                char escaped = json.charAt(pos++);
+                if (escaped == 'u') {
+                    for (int i = 0; i < 4; i++) {
+                        if (pos >= length || Character.digit(json.charAt(pos++), 16) < 0) {
+                            return false;
+                        }
+                    }
+                } else if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+                    return false;
+                }
+            } else if (c < 0x20) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean number() {
+        int start = pos;
+        if (peek() == '-') {
+            pos++;
+        }
+        if (peek() == '0') {
+            pos++;
+        } else if (!digits()) {
+            return false;
+        }
+        if (peek() == '.') {
+            pos++;
+            if (!digits()) {
+                return false;
+            }
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            pos++;
+            if (peek() == '+' || peek() == '-') {
+                pos++;
+            }
+            if (!digits()) {
+                return false;
+            }
+        }
+        append(start, pos);
+        return true;
+    }
+
+    /**
+     * 原样输出一段输入，超过上限的部分不再输出
+     */
+    private void append(int start, int end) {
+        out.append(json, start, Math.min(end, start + Math.max(0, limit - out.length())));
+    }
+
+    private boolean digits() {
+        int start = pos;
+        while (peek() >= '0' && peek() <= '9') {
+            pos++;
+        }
+        return pos > start;
+    }
+
+    private boolean literal(String literal) {
+        if (!json.startsWith(literal, pos)) {
+            return false;
+        }
+        out.append(literal);
+        pos += literal.length();
+        return true;
+    }
+
+    private char peek() {
+        return pos < json.length() ? json.charAt(pos) : 0;
+    }
+
+    private void skipWhitespace() {
+        int length = json.length();
+        while (pos < length) {
+            char c = json.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void push(byte container) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = container;
+    }
+
+    private void newLine() {
+        out.append('\n');
+        for (int i = depth * indent; i > 0; i--) {
+            out.append(' ');
+        }
+    }
+}
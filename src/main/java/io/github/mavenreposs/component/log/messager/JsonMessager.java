@@ -2,9 +2,6 @@ package io.github.mavenreposs.component.log.messager;
 
 import io.github.mavenreposs.component.log.LogUtil;
 import io.github.mavenreposs.component.log.contracts.MessagerInterface;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 public class JsonMessager implements MessagerInterface {
 
@@ -13,7 +10,7 @@ public class JsonMessager implements MessagerInterface {
      */
     private static final int JSON_INDENT = 4;
 
-    private String json;
+    private final String json;
 
     public JsonMessager(String json) {
         this.json = json;
@@ -21,23 +18,17 @@ public class JsonMessager implements MessagerInterface {
 
     @Override
     public String getParseMessage() {
+        return getParseMessage(0);
+    }
+
+    @Override
+    public String getParseMessage(int maxLength) {
         if (LogUtil.isEmpty(json)) {
             return "Empty/Null json content";
         }
 
-        try {
-            json = json.trim();
-            if (json.startsWith("{")) {
-                JSONObject jsonObject = new JSONObject(json);
-                return jsonObject.toString(JSON_INDENT);
-            } else if (json.startsWith("[")) {
-                JSONArray jsonArray = new JSONArray(json);
-                return jsonArray.toString(JSON_INDENT);
-            } else {
-                return "Invalid json content";
-            }
-        } catch (JSONException e) {
-            return "Invalid json content";
-        }
+        // 单次扫描完成校验和缩进，保持key的原始顺序，超出长度上限后不再扫描
+        String message = JsonIndenter.indent(json, JSON_INDENT, maxLength);
+        return message != null ? message : "Invalid json content";
     }
 }
@@ -1,14 +1,7 @@
 package io.github.mavenreposs.component.log.messager;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import io.github.mavenreposs.component.log.LogUtil;
 import io.github.mavenreposs.component.log.contracts.MessagerInterface;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.List;
-import java.util.Map;
 
 public class ObjectMessager implements MessagerInterface {
 
@@ -17,35 +10,56 @@ public class ObjectMessager implements MessagerInterface {
      */
     private static final int JSON_INDENT = 4;
 
+    /**
+     * 默认最大嵌套深度
+     */
+    public static final int DEFAULT_MAX_DEPTH = 16;
+
+    /**
+     * 默认每个集合、数组、Map最多输出的元素数量
+     */
+    public static final int DEFAULT_MAX_ELEMENTS = 1000;
+
     private final Object obj;
 
+    private final int maxDepth;
+
+    private final int maxElements;
+
     public ObjectMessager(Object obj) {
+        this(obj, DEFAULT_MAX_DEPTH, DEFAULT_MAX_ELEMENTS);
+    }
+
+    /**
+     * @param obj         对象
+     * @param maxDepth    最大嵌套深度，超出的部分只输出类名
+     * @param maxElements 每个集合、数组、Map最多输出的元素数量
+     */
+    public ObjectMessager(Object obj, int maxDepth, int maxElements) {
         this.obj = obj;
+        this.maxDepth = Math.max(maxDepth, 1);
+        this.maxElements = Math.max(maxElements, 0);
     }
 
     @Override
     public String getParseMessage() {
+        return getParseMessage(0);
+    }
+
+    @Override
+    public String getParseMessage(int maxLength) {
         if (obj == null) {
             return "Null object content";
         }
 
         try {
-            if (obj instanceof List) {
-                JSONArray jsonArray = new JSONArray();
-                for (Object o : (List) obj) {
-                    JSONObject jo = new JSONObject(new Gson().toJson(o));
-                    jsonArray.put(jo);
-                }
-                return jsonArray.toString(JSON_INDENT);
-            } else if (obj instanceof Map) {
-                Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-                JSONObject jsonObject = new JSONObject(gson.toJson(obj));
-                return jsonObject.toString(JSON_INDENT);
-            } else {
-                JSONObject jsonObject = new JSONObject(new Gson().toJson(obj));
-                return jsonObject.toString(JSON_INDENT);
+            // 直接从对象图输出，每个类的字段只反射一次，超出长度上限后不再遍历
+            StringBuilder out = new StringBuilder(256);
+            if (new ObjectRenderer(JSON_INDENT, maxDepth, maxElements, maxLength, out).render(obj)) {
+                LogUtil.appendTruncatedMarker(out, -1);
             }
-        } catch (JSONException e) {
+            return out.toString();
+        } catch (RuntimeException e) {
             return "Invalid object content";
         }
     }
@@ -0,0 +1,384 @@
+package io.github.mavenreposs.component.log.messager;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对象渲染
+ * <p>
+ * 直接从对象图输出缩进后的Json格式内容，不经过Gson序列化再解析。每个类的字段列表只反射一次并缓存，
+ * 嵌套深度、每个集合输出的元素数量和循环引用都有限制，避免实体对象图撑爆内存或调用栈。
+ * </p>
+ */
+final class ObjectRenderer {
+
+    private static final int KIND_RAW = 1;
+    private static final int KIND_STRING = 2;
+    private static final int KIND_MAP = 3;
+    private static final int KIND_ITERABLE = 4;
+    private static final int KIND_ARRAY = 5;
+    private static final int KIND_BEAN = 6;
+
+    //不是Collection的Iterable无法直接得到元素数量，超出上限的元素最多再数这么多个
+    private static final int MAX_COUNTED_ELEMENTS = 10_000;
+
+    private static final ClassValue<ClassPlan> PLANS = new ClassValue<ClassPlan>() {
+        @Override
+        protected ClassPlan computeValue(Class<?> type) {
+            return ClassPlan.of(type);
+        }
+    };
+
+    private final int indent;
+
+    private final int maxDepth;
+
+    private final int maxElements;
+
+    private final StringBuilder out;
+
+    //输出长度上限，超出后停止遍历对象图
+    private final int limit;
+
+    //当前路径上的容器对象，用来发现循环引用
+    private final IdentityHashMap<Object, Boolean> path = new IdentityHashMap<>();
+
+    ObjectRenderer(int indent, int maxDepth, int maxElements, StringBuilder out) {
+        this(indent, maxDepth, maxElements, 0, out);
+    }
+
+    /**
+     * @param maxLength 输出长度上限（字符数），小于等于0时不限制
+     */
+    ObjectRenderer(int indent, int maxDepth, int maxElements, int maxLength, StringBuilder out) {
+        this.indent = indent;
+        this.maxDepth = maxDepth;
+        this.maxElements = maxElements;
+        this.limit = maxLength > 0 ? maxLength : Integer.MAX_VALUE;
+        this.out = out;
+    }
+
+    /**
+     * @return 输出超过长度上限被截断时返回true
+     */
+    boolean render(Object value) {
+        try {
+            render(value, 0);
+            return false;
+        } catch (LimitReached e) {
+            out.setLength(Math.min(out.length(), limit));
+            return true;
+        }
+    }
+
+    private void render(Object value, int depth) {
+        if (out.length() >= limit) {
+            throw LimitReached.INSTANCE;
+        }
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        ClassPlan plan = PLANS.get(value.getClass());
+        switch (plan.kind) {
+            case KIND_RAW:
+                raw(value.toString());
+                return;
+            case KIND_STRING:
+                quote(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+                return;
+            default:
+                break;
+        }
+
+        if (depth >= maxDepth) {
+            quote("<max depth " + maxDepth + ": " + value.getClass().getName() + ">");
+            return;
+        }
+        if (path.put(value, Boolean.TRUE) != null) {
+            quote("<cycle: " + value.getClass().getName() + ">");
+            return;
+        }
+        try {
+            if (plan.kind == KIND_MAP) {
+                renderMap((Map<?, ?>) value, depth);
+            } else if (plan.kind == KIND_ITERABLE) {
+                int size = value instanceof Collection ? ((Collection<?>) value).size() : -1;
+                renderIterator(((Iterable<?>) value).iterator(), size, depth);
+            } else if (plan.kind == KIND_ARRAY) {
+                renderArray(value, depth);
+            } else {
+                renderBean(value, plan, depth);
+            }
+        } finally {
+            path.remove(value);
+        }
+    }
+
+    private void renderMap(Map<?, ?> map, int depth) {
+        if (map.isEmpty()) {
+            out.append("{}");
+            return;
+        }
+        out.append('{');
+        int count = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (count == maxElements) {
+                separator(count, depth + 1);
+                more(Integer.toString(map.size() - count));
+                out.append(": null");
+                break;
+            }
+            separator(count++, depth + 1);
+            quote(String.valueOf(entry.getKey()));
+            out.append(": ");
+            render(entry.getValue(), depth + 1);
+        }
+        newLine(depth);
+        out.append('}');
+    }
+
+    /**
+     * @param size 元素数量，未知时为-1
+     */
+    private void renderIterator(Iterator<?> iterator, int size, int depth) {
+        if (!iterator.hasNext()) {
+            out.append("[]");
+            return;
+        }
+        out.append('[');
+        int count = 0;
+        while (iterator.hasNext()) {
+            if (count == maxElements) {
+                separator(count, depth + 1);
+                more(size >= 0 ? Integer.toString(size - count) : countRemaining(iterator));
+                break;
+            }
+            separator(count++, depth + 1);
+            render(iterator.next(), depth + 1);
+        }
+        newLine(depth);
+        out.append(']');
+    }
+
+    private void renderArray(Object array, int depth) {
+        int length = Array.getLength(array);
+        if (length == 0) {
+            out.append("[]");
+            return;
+        }
+        out.append('[');
+        int count = Math.min(length, maxElements);
+        for (int i = 0; i < count; i++) {
+            separator(i, depth + 1);
+            render(Array.get(array, i), depth + 1);
+        }
+        if (length > count) {
+            separator(count, depth + 1);
+            more(Integer.toString(length - count));
+        }
+        newLine(depth);
+        out.append(']');
+    }
+
+    /**
+     * 超出元素数量上限时的省略标记，Map、集合和数组都写成"... N more"，Map中作为值为null的键
+     */
+    private void more(String omitted) {
+        quote("... " + omitted + " more");
+    }
+
+    private static String countRemaining(Iterator<?> iterator) {
+        int remaining = 0;
+        while (iterator.hasNext()) {
+            if (remaining == MAX_COUNTED_ELEMENTS) {
+                return remaining + "+";
+            }
+            iterator.next();
+            remaining++;
+        }
+        return Integer.toString(remaining);
+    }
+
+    /**
+     * 与Gson一致，值为null的字段不输出
+     */
+    private void renderBean(Object bean, ClassPlan plan, int depth) {
+        int count = 0;
+        for (int i = 0; i < plan.fields.length; i++) {
+            Object value;
+            try {
+                value = plan.fields[i].get(bean);
+            } catch (IllegalAccessException e) {
+                continue;
+            }
+            if (value == null) {
+                continue;
+            }
+            out.append(count == 0 ? "{" : ",");
+            newLine(depth + 1);
+            out.append(plan.names[i]);
+            render(value, depth + 1);
+            count++;
+        }
+        if (count == 0) {
+            out.append("{}");
+            return;
+        }
+        newLine(depth);
+        out.append('}');
+    }
+
+    private void separator(int index, int depth) {
+        if (index > 0) {
+            out.append(',');
+        }
+        newLine(depth);
+    }
+
+    private void newLine(int depth) {
+        out.append('\n');
+        for (int i = depth * indent; i > 0; i--) {
+            out.append(' ');
+        }
+    }
+
+    /**
+     * 只输出长度上限之内的部分
+     */
+    private void raw(String value) {
+        int remaining = limit - out.length();
+        if (value.length() > remaining) {
+            out.append(value, 0, remaining);
+            throw LimitReached.INSTANCE;
+        }
+        out.append(value);
+    }
+
+    /**
+     * 逐个字符转义，达到长度上限后立即停止，超长的字符串不会被完整转义和复制
+     */
+    private void quote(CharSequence value) {
+        out.append('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (out.length() >= limit) {
+                throw LimitReached.INSTANCE;
+            }
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * 一个类的输出方式，POJO还包括可输出的字段和预先拼好的字段名
+     */
+    private static final class ClassPlan {
+
+        private static final Field[] NO_FIELDS = new Field[0];
+
+        private final int kind;
+
+        private final Field[] fields;
+
+        // "name": 形式的字段名
+        private final String[] names;
+
+        private ClassPlan(int kind, Field[] fields, String[] names) {
+            this.kind = kind;
+            this.fields = fields;
+            this.names = names;
+        }
+
+        static ClassPlan of(Class<?> type) {
+            if (Number.class.isAssignableFrom(type) || type == Boolean.class) {
+                return new ClassPlan(KIND_RAW, NO_FIELDS, null);
+            } else if (CharSequence.class.isAssignableFrom(type) || type == Character.class || type.isEnum()
+                    || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+                return new ClassPlan(KIND_STRING, NO_FIELDS, null);
+            } else if (Map.class.isAssignableFrom(type)) {
+                return new ClassPlan(KIND_MAP, NO_FIELDS, null);
+            } else if (Iterable.class.isAssignableFrom(type)) {
+                return new ClassPlan(KIND_ITERABLE, NO_FIELDS, null);
+            } else if (type.isArray()) {
+                return new ClassPlan(KIND_ARRAY, NO_FIELDS, null);
+            }
+            return beanPlan(type);
+        }
+
+        /**
+         * 与Gson一致，输出当前类及父类中非static、非transient的字段；
+         * JDK中的类以及无法反射访问的类按toString输出
+         */
+        private static ClassPlan beanPlan(Class<?> type) {
+            if (type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+                return new ClassPlan(KIND_STRING, NO_FIELDS, null);
+            }
+            List<Field> fields = new ArrayList<>();
+            try {
+                for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                            continue;
+                        }
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            } catch (RuntimeException e) {
+                return new ClassPlan(KIND_STRING, NO_FIELDS, null);
+            }
+            String[] names = new String[fields.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "\"" + fields.get(i).getName() + "\": ";
+            }
+            return new ClassPlan(KIND_BEAN, fields.toArray(NO_FIELDS), names);
+        }
+    }
+
+    /**
+     * 输出达到上限时直接跳出递归，不记录堆栈
+     */
+    private static final class LimitReached extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final LimitReached INSTANCE = new LimitReached();
+
+        private LimitReached() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package io.github.mavenreposs.component.log.messager;
+
+import io.github.mavenreposs.component.log.LogUtil;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * 基于StAX的流式Xml缩进格式化
+ * <p>
+ * 所有线程共用同一个配置好的XMLInputFactory，边读取事件边输出缩进后的内容，不需要XSLT转换。
+ * 只包含文本的元素输出在同一行，包含子元素的元素每个子节点单独一行，只有空白的文本会被忽略。
+ * </p>
+ */
+final class XmlIndenter {
+
+    //配置完成后不再修改，创建XMLStreamReader是线程安全的
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private final XMLStreamReader reader;
+
+    private final int indent;
+
+    private final StringBuilder out;
+
+    //输出长度上限，超出后停止读取
+    private final int limit;
+
+    private int depth;
+
+    //每一层元素是否已经输出过子节点
+    private boolean[] hasChildren = new boolean[16];
+
+    //开始标签还没有输出'>'
+    private boolean open;
+
+    //还没有确定输出位置的文本，元素只有文本时与标签输出在同一行
+    private String pendingText;
+
+    private XmlIndenter(XMLStreamReader reader, int indent, int limit, StringBuilder out) {
+        this.reader = reader;
+        this.indent = indent;
+        this.limit = limit;
+        this.out = out;
+    }
+
+    /**
+     * @param xml    Xml字符串
+     * @param indent 缩进空格数
+     * @return 格式化后的内容
+     * @throws XMLStreamException 不是合法的Xml
+     */
+    static String indent(String xml, int indent) throws XMLStreamException {
+        return indent(xml, indent, 0);
+    }
+
+    /**
+     * 输出超过长度上限时立即停止读取，上限之后的内容不再校验
+     *
+     * @param xml       Xml字符串
+     * @param indent    缩进空格数
+     * @param maxLength 输出长度上限（字符数），小于等于0时不限制
+     * @return 格式化后的内容
+     * @throws XMLStreamException 不是合法的Xml
+     */
+    static String indent(String xml, int indent, int maxLength) throws XMLStreamException {
+        int limit = maxLength > 0 ? maxLength : Integer.MAX_VALUE;
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
+        try {
+            StringBuilder out = new StringBuilder(Math.min(limit, xml.length() + (xml.length() >> 1)));
+            if (!new XmlIndenter(reader, indent, limit, out).format()) {
+                out.setLength(Math.min(out.length(), limit));
+                LogUtil.appendTruncatedMarker(out, xml.length());
+            }
+            return out.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        //日志内容不可信，不解析DTD和外部实体
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * @return 输出超过长度上限被截断时返回false
+     */
+    private boolean format() throws XMLStreamException {
+        if (reader.getVersion() != null) {
+            out.append("<?xml version=\"").append(reader.getVersion()).append('"');
+            if (reader.getCharacterEncodingScheme() != null) {
+                out.append(" encoding=\"").append(reader.getCharacterEncodingScheme()).append('"');
+            }
+            if (reader.standaloneSet()) {
+                out.append(" standalone=\"").append(reader.isStandalone() ? "yes" : "no").append('"');
+            }
+            out.append("?>");
+        }
+        while (reader.hasNext()) {
+            if (out.length() >= limit) {
+                return false;
+            }
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    startElement();
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    String text = reader.getText().trim();
+                    if (!text.isEmpty()) {
+                        pendingText = pendingText == null ? text : pendingText + text;
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    beforeChild();
+                    out.append("<!--").append(reader.getText()).append("-->");
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    beforeChild();
+                    out.append("<?").append(reader.getPITarget());
+                    if (reader.getPIData() != null && !reader.getPIData().isEmpty()) {
+                        out.append(' ').append(reader.getPIData());
+                    }
+                    out.append("?>");
+                    break;
+                case XMLStreamConstants.DTD:
+                    beforeChild();
+                    out.append(reader.getText());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private void startElement() {
+        beforeChild();
+        out.append('<');
+        appendName(reader.getPrefix(), reader.getLocalName());
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            out.append(" xmlns");
+            String prefix = reader.getNamespacePrefix(i);
+            if (prefix != null && !prefix.isEmpty()) {
+                out.append(':').append(prefix);
+            }
+            out.append("=\"");
+            escape(reader.getNamespaceURI(i), true);
+            out.append('"');
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            out.append(' ');
+            appendName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+            out.append("=\"");
+            escape(reader.getAttributeValue(i), true);
+            out.append('"');
+        }
+        open = true;
+        if (depth == hasChildren.length) {
+            hasChildren = Arrays.copyOf(hasChildren, depth * 2);
+        }
+        hasChildren[depth++] = false;
+    }
+
+    private void endElement() {
+        boolean children = hasChildren[depth - 1];
+        if (pendingText != null && !children) {
+            closeStartTag();
+            escape(pendingText, false);
+            pendingText = null;
+            depth--;
+        } else {
+            flushText();
+            depth--;
+            if (open) {
+                out.append("/>");
+                open = false;
+                return;
+            }
+            newLine(depth);
+        }
+        out.append("</");
+        appendName(reader.getPrefix(), reader.getLocalName());
+        out.append('>');
+    }
+
+    /**
+     * 输出子节点之前，先结束开始标签并把之前的文本单独输出一行
+     */
+    private void beforeChild() {
+        closeStartTag();
+        flushText();
+        if (depth > 0) {
+            hasChildren[depth - 1] = true;
+        }
+        if (out.length() > 0) {
+            newLine(depth);
+        }
+    }
+
+    private void flushText() {
+        if (pendingText != null) {
+            closeStartTag();
+            newLine(depth);
+            escape(pendingText, false);
+            pendingText = null;
+            if (depth > 0) {
+                hasChildren[depth - 1] = true;
+            }
+        }
+    }
+
+    private void closeStartTag() {
+        if (open) {
+            out.append('>');
+            open = false;
+        }
+    }
+
+    private void appendName(String prefix, String localName) {
+        if (prefix != null && !prefix.isEmpty()) {
+            out.append(prefix).append(':');
+        }
+        out.append(localName);
+    }
+
+    private void escape(String text, boolean attribute) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '&') {
+                out.append("&amp;");
+            } else if (c == '<') {
+                out.append("&lt;");
+            } else if (c == '>' && !attribute) {
+                out.append("&gt;");
+            } else if (c == '"' && attribute) {
+                out.append("&quot;");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private void newLine(int depth) {
+        out.append('\n');
+        for (int i = depth * indent; i > 0; i--) {
+            out.append(' ');
+        }
+    }
+}
@@ -3,6 +3,7 @@ package io.github.mavenreposs.component.log.messager;
 import io.github.mavenreposs.component.log.LogUtil;
 import io.github.mavenreposs.component.log.contracts.MessagerInterface;
 
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.*;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -11,28 +12,92 @@ import java.io.StringWriter;
 
 public class XmlMessager implements MessagerInterface {
 
+    /**
+     * Xml缩进
+     */
+    private static final int XML_INDENT = 2;
+
+    /**
+     * Transformer不是线程安全的，每个线程创建一次后复用
+     */
+    private static final ThreadLocal<Transformer> localTransformer = new ThreadLocal<>();
+
     private final String xml;
 
+    private final boolean useTransformer;
+
+    private final boolean reuseTransformer;
+
     public XmlMessager(String xml) {
+        this(xml, false);
+    }
+
+    /**
+     * @param xml            Xml字符串
+     * @param useTransformer true使用XSLT转换输出（与之前版本的输出完全一致），false使用流式缩进
+     */
+    public XmlMessager(String xml, boolean useTransformer) {
+        this(xml, useTransformer, true);
+    }
+
+    /**
+     * @param xml              Xml字符串
+     * @param useTransformer   true使用XSLT转换输出（与之前版本的输出完全一致），false使用流式缩进
+     * @param reuseTransformer 是否复用当前线程的Transformer，适配虚拟线程时为false，每次新建
+     */
+    public XmlMessager(String xml, boolean useTransformer, boolean reuseTransformer) {
         this.xml = xml;
+        this.useTransformer = useTransformer;
+        this.reuseTransformer = reuseTransformer;
     }
 
     @Override
     public String getParseMessage() {
+        return getParseMessage(0);
+    }
+
+    @Override
+    public String getParseMessage(int maxLength) {
         if (LogUtil.isEmpty(xml)) {
             return "Empty/Null xml content";
         }
 
+        if (!useTransformer) {
+            try {
+                return XmlIndenter.indent(xml, XML_INDENT, maxLength);
+            } catch (XMLStreamException e) {
+                return "Invalid xml content";
+            }
+        }
+
         try {
             Source xmlInput = new StreamSource(new StringReader(xml));
             StreamResult xmlOutput = new StreamResult(new StringWriter());
-            Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+            Transformer transformer = reuseTransformer ? getTransformer() : newTransformer();
             transformer.transform(xmlInput, xmlOutput);
-            return xmlOutput.getWriter().toString().replaceFirst(">", ">\n");
+            return LogUtil.truncate(xmlOutput.getWriter().toString().replaceFirst(">", ">\n"), maxLength);
         } catch (TransformerException e) {
             return "Invalid xml content";
         }
     }
+
+    private static Transformer getTransformer() throws TransformerConfigurationException {
+        Transformer transformer = localTransformer.get();
+        if (transformer == null) {
+            transformer = newTransformer();
+            localTransformer.set(transformer);
+        } else {
+            transformer.reset();
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+        }
+        return transformer;
+    }
+
+    private static Transformer newTransformer() throws TransformerConfigurationException {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+        return transformer;
+    }
 }
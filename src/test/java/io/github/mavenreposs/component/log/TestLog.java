@@ -1,7 +1,39 @@
 package io.github.mavenreposs.component.log;
 
+import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+import io.github.mavenreposs.component.log.logger.BinaryFileLogger;
+import io.github.mavenreposs.component.log.logger.BinaryLogDecoder;
+import io.github.mavenreposs.component.log.logger.ConsoleLogger;
+import io.github.mavenreposs.component.log.logger.NdjsonLogger;
+import io.github.mavenreposs.component.log.messager.JsonMessager;
+import io.github.mavenreposs.component.log.messager.ObjectMessager;
+import io.github.mavenreposs.component.log.messager.XmlMessager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
 public class TestLog {
 
     @Test
@@ -40,6 +72,947 @@ public class TestLog {
         }
     }
 
+    @Test
+    public void testAsync() throws InterruptedException {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().async(true).asyncCapacity(16).methodCount(0).addLogger(memoryLogger);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    printer.append("append %d", i).info("line %d", i);
+                }
+            }, "async-" + t);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        printer.flush();
+
+        //每条日志块：上边框、拼接内容、分割线、消息、下边框，同一块内的行必须来自同一线程
+        Assertions.assertEquals(4 * 50 * 5, memoryLogger.lines.size());
+        for (int i = 0; i < memoryLogger.lines.size(); i += 5) {
+            String tag = memoryLogger.tags.get(i);
+            Assertions.assertTrue(memoryLogger.lines.get(i).startsWith("╔"));
+            Assertions.assertTrue(memoryLogger.lines.get(i + 4).startsWith("╚"));
+            for (int j = i; j < i + 5; j++) {
+                Assertions.assertEquals(tag, memoryLogger.tags.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void testAsyncReentrantSink() {
+        LogPrinter printer = new LogPrinter();
+        //输出工具在消费线程上继续打印日志，队列满时不能等待消费线程自己
+        MemoryLogger memoryLogger = new MemoryLogger() {
+            @Override
+            public void info(String tag, String message) {
+                super.info(tag, message);
+                if (message.contains("outer")) {
+                    for (int i = 0; i < 8; i++) {
+                        printer.info("inner %d", i);
+                    }
+                }
+            }
+        };
+        printer.getLogConfig().async(true).asyncCapacity(2).methodCount(0).addLogger(memoryLogger);
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 4; i++) {
+                printer.info("outer %d", i);
+            }
+            printer.flush();
+        });
+        Assertions.assertEquals(4, memoryLogger.lines.stream().filter(line -> line.contains("outer")).count());
+    }
+
+    @Test
+    public void testAsyncSinkError() {
+        LogPrinter printer = new LogPrinter();
+        //输出工具抛出Error时消费线程继续运行，之后的日志照常输出
+        MemoryLogger memoryLogger = new MemoryLogger() {
+            @Override
+            public void info(String tag, String message) {
+                if (message.contains("boom")) {
+                    throw new StackOverflowError();
+                }
+                super.info(tag, message);
+            }
+        };
+        printer.getLogConfig().async(true).asyncCapacity(2).methodCount(0).addLogger(memoryLogger);
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            printer.info("boom");
+            for (int i = 0; i < 8; i++) {
+                printer.info("after %d", i);
+            }
+            printer.flush();
+        });
+        Assertions.assertEquals(8, memoryLogger.lines.stream().filter(line -> line.contains("after")).count());
+    }
+
+    @Test
+    public void testLazySupplier() {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().setLogLevel(LogLevel.ERROR).methodCount(0).addLogger(memoryLogger);
+
+        AtomicInteger calls = new AtomicInteger();
+        printer.append(() -> "append " + calls.incrementAndGet()).debug(() -> "debug " + calls.incrementAndGet());
+        printer.object(() -> calls.incrementAndGet());
+        printer.error(new IllegalStateException(), () -> "error " + calls.incrementAndGet());
+        Assertions.assertEquals(1, calls.get());
+
+        //被过滤的日志拼接的内容不会带到下一条日志中
+        for (String line : memoryLogger.lines) {
+            Assertions.assertFalse(line.contains("append"));
+        }
+    }
+
+    @Test
+    public void testMessageFormatter() {
+        Assertions.assertEquals("a=1, b=x, 100%", MessageFormatter.PRINTF.format("a=%s, b=%s, 100%%", 1, "x"));
+        Assertions.assertEquals(String.format("%d items, %.2f", 3, 1.5), MessageFormatter.PRINTF.format("%d items, %.2f", 3, 1.5));
+        Assertions.assertEquals("{} stays", MessageFormatter.PRINTF.format("{} stays", 1));
+
+        Assertions.assertEquals("a=1, b=x, c=[1, 2]", MessageFormatter.BRACES.format("a={}, b=%s, c={}", 1, "x", new int[]{1, 2}));
+        Assertions.assertEquals("missing {}", MessageFormatter.BRACES.format("missing {}", new Object[0]));
+        Assertions.assertEquals(String.format("%d items", 3), MessageFormatter.BRACES.format("%d items", 3));
+    }
+
+    @Test
+    public void testCallerFrames() {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().methodCount(2).addLogger(memoryLogger);
+
+        printer.info("caller");
+
+        //外层调用在前，直接调用日志方法的栈帧在最后
+        Assertions.assertTrue(memoryLogger.lines.get(2).contains("TestLog.testCallerFrames"));
+        Assertions.assertFalse(memoryLogger.lines.get(1).contains("LogPrinter"));
+    }
+
+    @Test
+    public void testJsonMessager() {
+        Assertions.assertEquals("{\n    \"b\": 1,\n    \"a\": [\n        true,\n        null,\n        \"x\\\"y\"\n    ],\n    \"c\": {}\n}",
+                new JsonMessager(" {\"b\":1, \"a\":[true,null,\"x\\\"y\"],\"c\":{}} ").getParseMessage());
+        Assertions.assertEquals("[]", new JsonMessager("[ ]").getParseMessage());
+        Assertions.assertEquals("Invalid json content", new JsonMessager("{\"a\":1,}").getParseMessage());
+        Assertions.assertEquals("Invalid json content", new JsonMessager("{\"a\":01}").getParseMessage());
+        Assertions.assertEquals("Invalid json content", new JsonMessager("[1] 2").getParseMessage());
+        Assertions.assertEquals("Invalid json content", new JsonMessager("\"text\"").getParseMessage());
+    }
+
+    @Test
+    public void testObjectMessager() {
+        User user = new User();
+        user.id = 102;
+        user.name = "RCLOG";
+        Assertions.assertEquals("{\n    \"id\": 102,\n    \"name\": \"RCLOG\"\n}", new ObjectMessager(user).getParseMessage());
+        Assertions.assertEquals("[\n    1,\n    \"a\"\n]", new ObjectMessager(Arrays.asList(1, "a")).getParseMessage());
+        Assertions.assertEquals("[\n    1,\n    \"... 2 more\"\n]", new ObjectMessager(new int[]{1, 2, 3}, 4, 1).getParseMessage());
+        //集合、Map和数组使用同一种省略标记
+        Assertions.assertEquals("[\n    1,\n    \"... 2 more\"\n]", new ObjectMessager(Arrays.asList(1, 2, 3), 4, 1).getParseMessage());
+        Iterable<Integer> iterable = () -> Arrays.asList(1, 2, 3).iterator();
+        Assertions.assertEquals("[\n    1,\n    \"... 2 more\"\n]", new ObjectMessager(iterable, 4, 1).getParseMessage());
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        Assertions.assertEquals("{\n    \"a\": 1,\n    \"... 2 more\": null\n}", new ObjectMessager(map, 4, 1).getParseMessage());
+
+        List<Object> cycle = new ArrayList<>();
+        cycle.add(cycle);
+        Assertions.assertTrue(new ObjectMessager(cycle).getParseMessage().contains("<cycle: java.util.ArrayList>"));
+
+        //超长的字符串达到长度上限后不再继续转义和复制
+        AtomicInteger reads = new AtomicInteger();
+        CharSequence huge = new CharSequence() {
+            @Override
+            public int length() {
+                return 10_000_000;
+            }
+
+            @Override
+            public char charAt(int index) {
+                reads.incrementAndGet();
+                return '"';
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        String truncated = new ObjectMessager(Collections.singletonMap("value", huge)).getParseMessage(100);
+        Assertions.assertTrue(truncated.startsWith("{\n    \"value\": \"\\\""));
+        Assertions.assertTrue(truncated.contains("... [truncated at 100 chars"));
+        Assertions.assertTrue(reads.get() < 100, String.valueOf(reads.get()));
+    }
+
+    @Test
+    public void testXmlMessager() {
+        Assertions.assertEquals("<a x=\"1\">\n  <b/>\n  <c>1 &lt; 2</c>\n  <d>\n    t\n    <e/>\n  </d>\n</a>",
+                new XmlMessager("<a x=\"1\"><b></b> <c>1 &lt; 2</c><d>t<e/></d></a>").getParseMessage());
+        Assertions.assertEquals("Invalid xml content", new XmlMessager("<a><b></a>").getParseMessage());
+    }
+
+    @Test
+    public void testMaxRecordSize() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 100000; i++) {
+            json.append(i).append(',');
+        }
+        json.append("0]");
+        String message = new JsonMessager(json.toString()).getParseMessage(100);
+        Assertions.assertTrue(message.startsWith("[\n    0,\n    1,"));
+        Assertions.assertTrue(message.endsWith("... [truncated at 100 chars, original size " + json.length() + " chars]"));
+        //上限之内的内容不合法时仍然返回错误信息
+        Assertions.assertEquals("Invalid json content", new JsonMessager("[1,}").getParseMessage(100));
+
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().methodCount(0).maxRecordSize(200).maxSectionSize(50).addLogger(memoryLogger);
+        printer.append(json.toString()).append("second").append(json.toString()).object(Arrays.asList(new int[100000]));
+
+        //消息已经用完整条日志的长度，拼接内容都不再输出
+        long truncated = memoryLogger.lines.stream().filter(line -> line.contains("[truncated at")).count();
+        Assertions.assertEquals(1, truncated);
+        Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains("3 sections omitted")));
+        Assertions.assertTrue(memoryLogger.lines.size() < 60);
+
+        //拼接内容和消息共用一个长度上限，第一段拼接内容超出剩余长度时同样截断
+        memoryLogger.lines.clear();
+        printer.getLogConfig().maxSectionSize(0);
+        printer.append(json.toString()).append("second").info("done");
+        Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains("... [truncated at 196 chars")));
+        Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains("1 sections omitted")));
+        //不计截断说明，拼接内容和消息合起来不超过上限
+        int contentLength = memoryLogger.lines.stream().filter(line -> line.startsWith("║ ") && !line.startsWith("║ ... ["))
+                .mapToInt(line -> line.length() - 2).sum();
+        Assertions.assertEquals(200, contentLength);
+        printer.getLogConfig().maxSectionSize(50);
+
+        //消息和堆栈合起来只截断一次，原始长度按整条日志计算
+        memoryLogger.lines.clear();
+        IllegalStateException exception = new IllegalStateException("stack trace");
+        printer.error(exception, "failed %d", 1);
+        String original = "failed 1 : " + LogUtil.getStackTraceString(exception);
+        List<String> markers = memoryLogger.lines.stream().filter(line -> line.contains("[truncated at")).collect(Collectors.toList());
+        Assertions.assertEquals(1, markers.size());
+        Assertions.assertTrue(markers.get(0).endsWith("... [truncated at 200 chars, original size " + original.length() + " chars]"));
+    }
+
+    @Test
+    public void testSinkLevel() {
+        LogPrinter printer = new LogPrinter();
+        ConsoleLogger consoleLogger = printer.getLogConfig().getLogger(ConsoleLogger.class).level(LogLevel.WARN);
+        Assertions.assertEquals(LogLevel.WARN, consoleLogger.getLevel());
+        Assertions.assertFalse(consoleLogger.isEnabled(LogLevel.INFO));
+        MemoryLogger memoryLogger = new MemoryLogger() {
+            @Override
+            public boolean isEnabled(int level) {
+                return level >= LogLevel.WARN;
+            }
+        };
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0);
+
+        AtomicInteger calls = new AtomicInteger();
+        printer.append(() -> "append " + calls.incrementAndGet()).info(() -> "info " + calls.incrementAndGet());
+        Assertions.assertFalse(printer.isLoggable(LogLevel.INFO));
+        Assertions.assertEquals(0, calls.get());
+        Assertions.assertTrue(memoryLogger.lines.isEmpty());
+
+        printer.warn(() -> "warn " + calls.incrementAndGet());
+        Assertions.assertEquals(Arrays.asList("warn 1"), memoryLogger.lines);
+    }
+
+    @Test
+    public void testRateLimit() throws InterruptedException {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false).rateLimit(5, 200);
+
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            printer.warn(() -> "warn " + calls.incrementAndGet());
+        }
+        //被限流的日志不会生成消息内容
+        Assertions.assertEquals(5, calls.get());
+        Assertions.assertEquals(5, memoryLogger.lines.size());
+
+        Thread.sleep(250);
+        printer.warn("next window");
+        Assertions.assertEquals("95 log records from RCLOG were suppressed in the last 200ms", memoryLogger.lines.get(5));
+        Assertions.assertEquals("next window", memoryLogger.lines.get(6));
+
+        //不再输出日志的Tag在其它Tag的日志到来或flush时得到汇总
+        memoryLogger.lines.clear();
+        memoryLogger.tags.clear();
+        printer.getLogConfig().rateLimit(2, 100);
+        for (int i = 0; i < 5; i++) {
+            printer.tag("QUIET").warn("quiet %d", i);
+            printer.tag("FLUSHED").warn("flushed %d", i);
+        }
+        Thread.sleep(150);
+        printer.tag("OTHER").warn("other");
+        Assertions.assertTrue(memoryLogger.lines.contains("3 log records from QUIET were suppressed in the last 100ms"));
+        Assertions.assertEquals("QUIET", memoryLogger.tags.get(memoryLogger.lines.indexOf("3 log records from QUIET were suppressed in the last 100ms")));
+        memoryLogger.lines.clear();
+        for (int i = 0; i < 5; i++) {
+            printer.tag("FLUSHED").warn("flushed %d", i);
+        }
+        Thread.sleep(150);
+        printer.flush();
+        Assertions.assertEquals("3 log records from FLUSHED were suppressed in the last 100ms", memoryLogger.lines.get(memoryLogger.lines.size() - 1));
+
+        //汇总日志是WARN级别，低于日志级别时不输出
+        LogPrinter errorsOnly = new LogPrinter();
+        MemoryLogger errorLogger = new MemoryLogger();
+        errorsOnly.getLogConfig().clearLoggers().addLogger(errorLogger).methodCount(0).showThreadInfo(false)
+                .setLogLevel(LogLevel.ERROR).rateLimit(1, 100);
+        for (int i = 0; i < 3; i++) {
+            errorsOnly.error("error %d", i);
+        }
+        Thread.sleep(150);
+        errorsOnly.error("error next");
+        errorsOnly.flush();
+        Assertions.assertEquals(Arrays.asList("error 0", "error next"), errorLogger.lines);
+
+        LogPrinter sampled = new LogPrinter();
+        MemoryLogger sampledLogger = new MemoryLogger();
+        sampled.getLogConfig().clearLoggers().addLogger(sampledLogger).methodCount(0).sampling(LogLevel.DEBUG, 10);
+        for (int i = 0; i < 100; i++) {
+            sampled.debug("debug %s", i);
+            sampled.info("info %s", i);
+        }
+        Assertions.assertEquals(110, sampledLogger.lines.size());
+    }
+
+    @Test
+    public void testSuppressDuplicates() {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false).suppressDuplicates(60000);
+
+        for (int i = 0; i < 1000; i++) {
+            printer.error("connection refused");
+        }
+        printer.error("connection %s", "restored");
+        printer.error("connection %s", "restored");
+        printer.flush();
+        Assertions.assertEquals(Arrays.asList("connection refused", "Last message repeated 999 times",
+                "connection restored", "Last message repeated 1 times"), memoryLogger.lines);
+    }
+
+    @Test
+    public void testDuplicatesExpire() throws InterruptedException {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false).suppressDuplicates(100);
+
+        for (int i = 0; i < 5; i++) {
+            printer.warn("disk almost full");
+        }
+        //之后没有新的日志，重复持续到最长时间时也要输出汇总
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (memoryLogger) {
+                if (memoryLogger.lines.size() == 2) {
+                    break;
+                }
+            }
+            Thread.sleep(10);
+        }
+        synchronized (memoryLogger) {
+            Assertions.assertEquals(Arrays.asList("disk almost full", "Last message repeated 4 times"), memoryLogger.lines);
+        }
+    }
+
+    @Test
+    public void testDuplicatesConcurrent() throws InterruptedException {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false).suppressDuplicates(60000);
+
+        //多个线程交替输出相同和不同的日志，输出的日志加上汇总的重复次数必须等于调用次数
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    printer.info(i % 100 == 0 ? "thread " + thread : "same");
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        printer.flush();
+
+        long total = 0;
+        for (String line : memoryLogger.lines) {
+            total += line.startsWith("Last message repeated ")
+                    ? Long.parseLong(line.substring("Last message repeated ".length(), line.length() - " times".length()))
+                    : 1;
+        }
+        Assertions.assertEquals(8 * 20000, total);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(1);
+        printer.registerMetrics("TestLog");
+
+        printer.tag("A").info("one");
+        printer.tag("A").warn("two");
+        printer.tag("B").json("{\"a\":1}");
+
+        LogMetricsMXBean metrics = printer.getMetrics();
+        Assertions.assertEquals(3, metrics.getRecordCount());
+        Assertions.assertEquals(1L, metrics.getRecordsByLevel().get("WARN"));
+        Assertions.assertEquals(2L, metrics.getRecordsByTag().get("A"));
+        Assertions.assertEquals(3L, metrics.getLatencyNanos().get("render.count"));
+        Assertions.assertEquals(1L, metrics.getLatencyNanos().get("parse.json.count"));
+        Assertions.assertEquals(3L, metrics.getLatencyNanos().get("sink.MemoryLogger.count"));
+        Assertions.assertTrue(metrics.getCharsWrittenBySink().get("MemoryLogger") > 0);
+
+        ObjectName name = new ObjectName("io.github.mavenreposs.component.log:type=LogMetrics,name=TestLog");
+        Assertions.assertEquals(3L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "RecordCount"));
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getRecordCount());
+
+        // 按没有线程信息的Tag统计，Tag本身包含'['时不截断
+        printer.getLogConfig().showThreadInfo(true);
+        printer.tag("C[1]").info("three");
+        Assertions.assertEquals(1L, metrics.getRecordsByTag().get("C[1]"));
+        Assertions.assertEquals(1L, metrics.getRecordsByLevel().get("INFO"));
+    }
+
+    @Test
+    public void testBinaryLogger() throws IOException {
+        File file = File.createTempFile("rclog", ".rclog");
+        file.deleteOnExit();
+        BinaryFileLogger binaryLogger = new BinaryFileLogger(file, 1024, 0);
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false)
+                .printToFile(true).binaryLogger(binaryLogger, "BIN");
+
+        for (int i = 0; i < 3; i++) {
+            printer.tag("BIN").info("user %s cost %dms, rate %.1f", "u" + i, i * 10L, 0.5);
+        }
+        printer.tag("BIN").append("request %s", 7).warn("done");
+        printer.tag("TEXT").info("text %s", 1);
+        //不输出到文件的日志不写入二进制日志，按文本输出
+        printer.tag("BIN").file(false).info("not in file %s", 2);
+        Assertions.assertEquals(Arrays.asList("text 1", "not in file 2"), memoryLogger.lines);
+        //带方法栈的日志还原后与文本日志的内容相同
+        for (String tag : new String[]{"BIN", "TEXT"}) {
+            printer.tag(tag).method(1).info("caller %s", 1);
+        }
+
+        //flush把缓冲区中的记录写入文件，不需要等到关闭
+        printer.flush();
+        StringBuilder text = new StringBuilder();
+        try (FileInputStream in = new FileInputStream(file)) {
+            Assertions.assertEquals(5, BinaryLogDecoder.decode(in, text));
+        }
+        String[] lines = text.toString().split("\r\n");
+        Assertions.assertEquals(13, lines.length);
+        Assertions.assertTrue(lines[0].endsWith(": I/BIN: user u0 cost 0ms, rate 0.5"));
+        Assertions.assertTrue(lines[2].endsWith(": I/BIN: user u2 cost 20ms, rate 0.5"));
+        Assertions.assertTrue(lines[4].endsWith(": W/BIN: ║ request 7"));
+        Assertions.assertTrue(lines[6].endsWith(": W/BIN: ║ done"));
+        List<String> callerBlock = memoryLogger.lines.subList(2, memoryLogger.lines.size());
+        Assertions.assertEquals(5, callerBlock.size());
+        Assertions.assertTrue(callerBlock.get(1).contains("TestLog.testBinaryLogger"));
+        for (int i = 0; i < callerBlock.size(); i++) {
+            Assertions.assertTrue(lines[8 + i].endsWith(": I/BIN: " + callerBlock.get(i)), lines[8 + i]);
+        }
+        binaryLogger.close();
+    }
+
+    @Test
+    public void testNdjsonLogger() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NdjsonLogger ndjsonLogger = new NdjsonLogger(out, 1024, 0);
+        LogPrinter printer = new LogPrinter();
+        printer.getLogConfig().clearLoggers().addLogger(ndjsonLogger).methodCount(0).showThreadInfo(true);
+
+        printer.tag("JSON").append("k=\"v\"").info("line1\nline2 中文 \uD83D\uDE00");
+        ndjsonLogger.flush();
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(1, lines.length);
+        String json = lines[0];
+        Assertions.assertTrue(json.startsWith("{\"timestamp\":"));
+        Assertions.assertTrue(json.contains(",\"level\":\"INFO\",\"tag\":\"JSON\",\"thread\":\""
+                + Thread.currentThread().getName() + "\""));
+        Assertions.assertTrue(json.contains(",\"sections\":[\"k=\\\"v\\\"\"]"));
+        Assertions.assertTrue(json.endsWith(",\"message\":\"line1\\nline2 中文 \uD83D\uDE00\"}"));
+        Assertions.assertFalse(json.contains("\"frames\""));
+
+        printer.tag("JSON").error("failed");
+        Assertions.assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).endsWith(",\"message\":\"failed\"}\n"));
+
+        // Tag本身包含'['时不截断，没有名字的线程使用线程id
+        Thread unnamed = new Thread(() -> printer.tag("A[1]").error("unnamed"), "");
+        unnamed.start();
+        try {
+            unnamed.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Assertions.assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).contains(
+                "\"tag\":\"A[1]\",\"thread\":\"#" + unnamed.getId() + "\""));
+        Assertions.assertEquals(0, ndjsonLogger.getErrorCount());
+        ndjsonLogger.close();
+
+        // 写入日志文件的NdjsonLogger与FileLogger一样只在需要输出到文件时接收日志
+        ByteArrayOutputStream fileOut = new ByteArrayOutputStream();
+        NdjsonLogger fileLogger = new NdjsonLogger(fileOut, 1024, 0, true);
+        printer.getLogConfig().clearLoggers().addLogger(fileLogger).printToFile(false);
+        printer.info("skipped");
+        printer.file(true).info("written");
+        fileLogger.close();
+        String written = new String(fileOut.toByteArray(), StandardCharsets.UTF_8);
+        Assertions.assertFalse(written.contains("skipped"));
+        Assertions.assertTrue(written.contains("\"message\":\"written\""));
+    }
+
+    @Test
+    public void testNamedPrinters() throws InterruptedException {
+        Assertions.assertSame(RCLog.printer(), RCLog.printer(RCLog.DEFAULT_PRINTER));
+        LogPrinter audit = RCLog.printer("TestAudit");
+        LogPrinter access = RCLog.printer("TestAccess");
+        Assertions.assertSame(audit, RCLog.printer("TestAudit"));
+        Assertions.assertNotSame(audit.getLogConfig(), access.getLogConfig());
+        Assertions.assertEquals("TestAudit", audit.getLogConfig().snapshot().getTag());
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MemoryLogger blockingLogger = new MemoryLogger() {
+            @Override
+            public void info(String tag, String message) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.info(tag, message);
+            }
+        };
+        MemoryLogger accessLogger = new MemoryLogger();
+        audit.getLogConfig().clearLoggers().addLogger(blockingLogger).methodCount(0).showThreadInfo(false);
+        access.getLogConfig().clearLoggers().addLogger(accessLogger).methodCount(0).showThreadInfo(false);
+
+        // 一个打印机的输出工具阻塞时，另一个打印机不受影响
+        Thread auditThread = new Thread(() -> audit.info("audit"));
+        auditThread.start();
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+        access.info("access");
+        Assertions.assertEquals(Arrays.asList("access"), accessLogger.lines);
+        Assertions.assertEquals(Arrays.asList("TestAccess"), accessLogger.tags);
+        release.countDown();
+        auditThread.join();
+        Assertions.assertEquals(Arrays.asList("audit"), blockingLogger.lines);
+    }
+
+    @Test
+    public void testConfigReload() throws Exception {
+        File dir = Files.createTempDirectory("rclog-config").toFile();
+        File file = new File(dir, "rclog.properties");
+        Files.write(file.toPath(), Arrays.asList("level=WARN", "tag=RELOAD", "methodCount=3",
+                "loggers=console", "logger.console.level=ERROR"), StandardCharsets.UTF_8);
+
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        ByteArrayOutputStream ndjsonOut = new ByteArrayOutputStream();
+        LogConfig config = printer.getLogConfig().addLogger(memoryLogger)
+                .addLogger(new NdjsonLogger(ndjsonOut, 1024, 0));
+        printer.info("buffered");
+        Assertions.assertEquals(0, ndjsonOut.size());
+        LogSettings before = config.snapshot();
+        LogConfigReloader reloader = new LogConfigReloader(config, file).start();
+        try {
+            // 被移除的输出工具已经关闭，缓冲区中的日志已经写出
+            Assertions.assertTrue(ndjsonOut.toString(StandardCharsets.UTF_8).contains("\"message\":\"buffered\""));
+            LogSettings settings = config.snapshot();
+            Assertions.assertNotSame(before, settings);
+            Assertions.assertEquals(LogLevel.WARN, settings.getLogLevel());
+            Assertions.assertEquals("RELOAD", settings.getTag());
+            Assertions.assertEquals(3, settings.getMethodCount());
+            // 代码中添加的输出工具保留，文件和Json输出被移除，控制台输出沿用原来的实例
+            Assertions.assertEquals(2, settings.getLoggers().size());
+            Assertions.assertSame(before.getLoggers().get(0), config.getLogger(ConsoleLogger.class));
+            Assertions.assertTrue(settings.getLoggers().contains(memoryLogger));
+            Assertions.assertFalse(config.getLogger(ConsoleLogger.class).isEnabled(LogLevel.WARN));
+            Assertions.assertThrows(UnsupportedOperationException.class, () -> settings.getLoggers().clear());
+
+            Files.write(file.toPath(), Arrays.asList("level=DEBUG", "logger.console.level=bad"), StandardCharsets.UTF_8);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (config.snapshot().getLogLevel() != LogLevel.DEBUG && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Assertions.assertEquals(LogLevel.DEBUG, config.snapshot().getLogLevel());
+            Assertions.assertEquals("RELOAD", config.snapshot().getTag());
+            // 一次写入触发的多次修改事件只重新加载一次
+            Thread.sleep(500);
+            Assertions.assertEquals(1, reloader.getErrorCount());
+            // 内容没有变化的保存不会重新加载
+            Files.write(file.toPath(), Arrays.asList("level=DEBUG", "logger.console.level=bad"), StandardCharsets.UTF_8);
+            Thread.sleep(1000);
+            Assertions.assertEquals(1, reloader.getErrorCount());
+        } finally {
+            reloader.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedThreadLocals() {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false);
+
+        // 旧的接口读写的是当前线程正在组装的日志
+        printer.method(2);
+        Assertions.assertEquals(2, printer.getLocalMethodCount().get());
+        printer.getLocalMethodCount().remove();
+        Assertions.assertNull(printer.getLocalMethodCount().get());
+
+        printer.append("first");
+        List<String> messages = printer.getLocalMessageList().get();
+        Assertions.assertEquals(Arrays.asList("first"), messages);
+        messages.add("second");
+        printer.info("message");
+        Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains("first")));
+        Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains("second")));
+        Assertions.assertTrue(printer.getLocalMessageList().get().isEmpty());
+
+        // 旧的模板构造方法同样使用并清除当前线程上的设置
+        memoryLogger.lines.clear();
+        printer.method(1).append("appended");
+        new PrinterTemplate(printer, LogLevel.INFO, "OLD", "template", false).println();
+        Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains("testDeprecatedThreadLocals")));
+        Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains("appended")));
+        Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains("template")));
+        Assertions.assertEquals("OLD", memoryLogger.tags.get(memoryLogger.tags.size() - 1));
+        Assertions.assertNull(printer.getLocalMethodCount().get());
+        Assertions.assertTrue(printer.getLocalMessageList().get().isEmpty());
+    }
+
+    @Test
+    public void testLocalRecord() {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(true);
+        String threadTag = "[" + Thread.currentThread().getName() + "]";
+
+        printer.tag("A").info("one");
+        printer.info("two");
+        printer.info("three");
+        Assertions.assertEquals(Arrays.asList("A" + threadTag, "RCLOG" + threadTag, "RCLOG" + threadTag), memoryLogger.tags);
+        // 线程名和Tag不变时复用同一个带线程名的Tag
+        Assertions.assertSame(memoryLogger.tags.get(1), memoryLogger.tags.get(2));
+
+        // 被过滤的日志不会把设置留给下一条日志
+        printer.getLogConfig().setLogLevel(LogLevel.WARN);
+        printer.tag("DROPPED").method(3).append("dropped").info("dropped");
+        printer.getLogConfig().setLogLevel(LogLevel.VERBOSE);
+        memoryLogger.tags.clear();
+        memoryLogger.lines.clear();
+        printer.info("kept");
+        Assertions.assertEquals(Arrays.asList("kept"), memoryLogger.lines);
+        Assertions.assertEquals(Arrays.asList("RCLOG" + threadTag), memoryLogger.tags);
+
+        // 拼接内容中输出的日志不影响外层的日志
+        memoryLogger.tags.clear();
+        memoryLogger.lines.clear();
+        printer.tag("OUTER").append(() -> {
+            printer.tag("INNER").info("inner");
+            return "section";
+        }).info("outer");
+        Assertions.assertEquals("inner", memoryLogger.lines.get(0));
+        Assertions.assertEquals("INNER" + threadTag, memoryLogger.tags.get(0));
+        Assertions.assertTrue(memoryLogger.lines.contains("║ section"));
+        Assertions.assertTrue(memoryLogger.lines.contains("║ outer"));
+        for (String tag : memoryLogger.tags.subList(1, memoryLogger.tags.size())) {
+            Assertions.assertEquals("OUTER" + threadTag, tag);
+        }
+    }
+
+    @Test
+    public void testVirtualThreadStress() throws Exception {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(true)
+                .virtualThreads(true);
+        int tasks = 100_000;
+        ExecutorService executor = null;
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Java 21之前没有虚拟线程
+        }
+        Assumptions.assumeTrue(executor != null, "virtual threads are not available");
+        for (int i = 0; i < tasks; i++) {
+            int id = i;
+            executor.execute(() -> printer.tag("T" + id % 8).info("task " + id));
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+
+        Assertions.assertEquals(tasks, memoryLogger.lines.size());
+        for (int i = 0; i < tasks; i++) {
+            // 每条日志使用自己线程上设置的Tag，没有名字的线程使用线程id
+            int id = Integer.parseInt(memoryLogger.lines.get(i).substring("task ".length()));
+            String tag = memoryLogger.tags.get(i);
+            Assertions.assertTrue(tag.startsWith("T" + id % 8 + "["), tag);
+            Assertions.assertFalse(tag.endsWith("[]"), tag);
+        }
+    }
+
+    @Test
+    public void testVirtualThreadMode() throws InterruptedException {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false)
+                .virtualThreads(true);
+
+        // 设置的内容只属于这一条日志
+        printer.tag("A").append("section").info("one");
+        printer.info("two");
+        Assertions.assertEquals(Arrays.asList("A", "A", "A", "A", "A", "RCLOG"), memoryLogger.tags);
+        Assertions.assertTrue(memoryLogger.lines.get(1).contains("section"));
+
+        // 被过滤的日志不会把设置留给下一条日志，拼接内容中输出的日志不影响外层的日志
+        memoryLogger.tags.clear();
+        memoryLogger.lines.clear();
+        printer.getLogConfig().setLogLevel(LogLevel.INFO);
+        printer.tag("DROPPED").append("dropped").debug("dropped");
+        printer.getLogConfig().setLogLevel(LogLevel.VERBOSE);
+        printer.tag("OUTER").append(() -> {
+            printer.tag("INNER").info("inner");
+            return "section";
+        }).info("outer");
+        Assertions.assertEquals("INNER", memoryLogger.tags.get(0));
+        Assertions.assertEquals("OUTER", memoryLogger.tags.get(memoryLogger.tags.size() - 1));
+        Assertions.assertFalse(memoryLogger.lines.stream().anyMatch(line -> line.contains("dropped")));
+
+        // 不同线程上设置的内容互不影响
+        memoryLogger.tags.clear();
+        memoryLogger.lines.clear();
+        CountDownLatch tagged = new CountDownLatch(1);
+        CountDownLatch logged = new CountDownLatch(1);
+        Thread other = new Thread(() -> {
+            printer.tag("OTHER");
+            tagged.countDown();
+            try {
+                logged.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            printer.info("other");
+        });
+        other.start();
+        Assertions.assertTrue(tagged.await(5, TimeUnit.SECONDS));
+        printer.info("main");
+        logged.countDown();
+        other.join();
+        Assertions.assertEquals(Arrays.asList("RCLOG", "OTHER"), memoryLogger.tags);
+    }
+
+    @Test
+    public void testVirtualThreadFormatting() throws InterruptedException {
+        // 不复用StringBuilder时参数的toString中再次格式化不影响外层
+        Object nested = new Object() {
+            @Override
+            public String toString() {
+                return MessageFormatter.BRACES.format(false, "inner {}", 1);
+            }
+        };
+        Assertions.assertEquals("outer inner 1 2", MessageFormatter.BRACES.format(false, "outer {} {}", nested, 2));
+
+        // 适配虚拟线程时每条日志在新的短生命周期线程上格式化消息和Xml，两种Xml格式化方式都不复用线程上的对象
+        for (boolean transformer : new boolean[]{false, true}) {
+            LogPrinter printer = new LogPrinter();
+            MemoryLogger memoryLogger = new MemoryLogger();
+            printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false)
+                    .virtualThreads(true).xmlTransformer(transformer);
+            int taskCount = 64;
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < taskCount; i++) {
+                int id = i;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    printer.info("task %s of %s", id, nested);
+                    printer.xml("<task><id>" + id + "</id></task>");
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (int i = 0; i < taskCount; i++) {
+                String message = "task " + i + " of inner 1";
+                String xml = "<id>" + i + "</id>";
+                Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains(message)), message);
+                Assertions.assertTrue(memoryLogger.lines.stream().anyMatch(line -> line.contains(xml)), xml);
+            }
+        }
+    }
+
+    @Test
+    public void testStackTraceFingerprint() {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false)
+                .suppressStackTraces(60_000);
+
+        // 同一位置抛出的异常第一次输出完整堆栈和编号，之后只输出编号、异常消息和次数，消息不同不影响指纹
+        List<String> records = new ArrayList<>();
+        for (String message : Arrays.asList("down", "down", "down again")) {
+            memoryLogger.lines.clear();
+            printer.error(newFailure(message), "call failed");
+            records.add(String.join("\n", memoryLogger.lines));
+        }
+        String first = records.get(0);
+        Assertions.assertTrue(first.contains("at io.github.mavenreposs.component.log.TestLog.newFailure"), first);
+        int idStart = first.indexOf("[trace ") + "[trace ".length();
+        String id = first.substring(idStart, first.indexOf(']', idStart));
+        Assertions.assertTrue(first.contains("call failed : [trace " + id + "] java.io.IOException: down"), first);
+        Assertions.assertEquals(Arrays.asList(
+                "call failed : java.io.IOException: down [trace " + id + ", 2 times in 60000ms, stack trace omitted]",
+                "call failed : java.io.IOException: down again [trace " + id + ", 3 times in 60000ms, stack trace omitted]"),
+                records.subList(1, 3));
+
+        // 不同的堆栈有自己的编号
+        memoryLogger.lines.clear();
+        printer.error(new IllegalStateException("other"), "call failed");
+        String other = String.join("\n", memoryLogger.lines);
+        Assertions.assertTrue(other.contains("java.lang.IllegalStateException: other"), other);
+        Assertions.assertTrue(other.contains("at io.github.mavenreposs.component.log.TestLog.testStackTraceFingerprint"), other);
+        Assertions.assertFalse(other.contains("[trace " + id), other);
+
+        // 关闭后每次都输出完整堆栈
+        printer.getLogConfig().suppressStackTraces(0);
+        memoryLogger.lines.clear();
+        printer.error(newFailure("down"), "call failed");
+        String full = String.join("\n", memoryLogger.lines);
+        Assertions.assertFalse(full.contains("[trace "), full);
+        Assertions.assertTrue(full.contains("at io.github.mavenreposs.component.log.TestLog.newFailure"), full);
+    }
+
+    @Test
+    public void testStackTraceFingerprintConcurrent() throws InterruptedException {
+        LogPrinter printer = new LogPrinter();
+        MemoryLogger memoryLogger = new MemoryLogger();
+        printer.getLogConfig().clearLoggers().addLogger(memoryLogger).methodCount(0).showThreadInfo(false)
+                .suppressStackTraces(60_000);
+        IOException failure = newFailure("down");
+
+        // 多个线程同时记录同一个堆栈，只有一次输出完整堆栈，次数不重复也不丢失
+        int threadCount = 8;
+        int perThread = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    printer.error(failure, "call failed");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long fullTraces = memoryLogger.lines.stream().filter(line -> line.contains("call failed : [trace ")).count();
+        List<Integer> counts = memoryLogger.lines.stream().filter(line -> line.contains("stack trace omitted]"))
+                .map(line -> Integer.parseInt(line.substring(line.indexOf(", ") + 2, line.indexOf(" times in"))))
+                .sorted().collect(Collectors.toList());
+        Assertions.assertEquals(1, fullTraces);
+        Assertions.assertEquals(threadCount * perThread - 1, counts.size());
+        for (int i = 0; i < counts.size(); i++) {
+            Assertions.assertEquals(i + 2, counts.get(i));
+        }
+    }
+
+    private static IOException newFailure(String message) {
+        return new IOException(message);
+    }
+
+    static class MemoryLogger implements LoggerInterface {
+
+        final List<String> tags = new ArrayList<>();
+
+        final List<String> lines = new ArrayList<>();
+
+        @Override
+        public void verbose(String tag, String message) {
+            add(tag, message);
+        }
+
+        @Override
+        public void debug(String tag, String message) {
+            add(tag, message);
+        }
+
+        @Override
+        public void info(String tag, String message) {
+            add(tag, message);
+        }
+
+        @Override
+        public void warn(String tag, String message) {
+            add(tag, message);
+        }
+
+        @Override
+        public void error(String tag, String message) {
+            add(tag, message);
+        }
+
+        @Override
+        public void assertError(String tag, String message) {
+            add(tag, message);
+        }
+
+        private synchronized void add(String tag, String message) {
+            tags.add(tag);
+            lines.add(message);
+        }
+    }
 
     private static class User {
 
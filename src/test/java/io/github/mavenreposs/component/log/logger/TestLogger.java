@@ -0,0 +1,440 @@
+package io.github.mavenreposs.component.log.logger;
+
+import io.github.mavenreposs.component.log.LogBlock;
+import io.github.mavenreposs.component.log.LogLevel;
+import io.github.mavenreposs.component.log.contracts.LoggerInterface;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 输出工具写入临时目录的测试
+ */
+public class TestLogger {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testMappedFileLogger() throws IOException {
+        MappedFileLogger logger = new MappedFileLogger(tempDir, 4096);
+        //200行超过多个映射区域
+        for (int i = 0; i < 200; i++) {
+            logger.info("MAPPED", "line " + i + " 映射文件日志");
+        }
+        logger.close();
+        //关闭后再次写入，从文件的实际长度继续映射
+        logger.info("MAPPED", "after reopen");
+        logger.close();
+
+        String content = readLogs(new File(tempDir, "MAPPED"));
+        Assertions.assertEquals(-1, content.indexOf('\0'));
+        List<String> lines = Arrays.asList(content.split("\r\n"));
+        Assertions.assertEquals(201, lines.size());
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertTrue(lines.get(i).endsWith("I/MAPPED: line " + i + " 映射文件日志"));
+        }
+        Assertions.assertTrue(lines.get(200).endsWith("I/MAPPED: after reopen"));
+        Assertions.assertEquals(0, logger.getErrorCount());
+    }
+
+    @Test
+    public void testMappedFileLoggerShutdown() throws IOException {
+        MappedFileLogger logger = new MappedFileLogger(tempDir, 4096);
+        logger.info("MAPPED", "before shutdown");
+        logger.shutdown();
+        //进程退出时关闭后写入的日志不再映射新的区域，文件末尾不会留下空字节
+        logger.info("MAPPED", "after shutdown");
+
+        String content = readLogs(new File(tempDir, "MAPPED"));
+        Assertions.assertEquals(-1, content.indexOf('\0'));
+        Assertions.assertTrue(content.endsWith("I/MAPPED: before shutdown\r\n"));
+        Assertions.assertEquals(1, logger.getErrorCount());
+    }
+
+    @Test
+    public void testRolloverAt() {
+        long now = 1_700_000_123_456L;
+        long hour = 3_600_000L;
+        long rolloverAt = FileLogger.getRolloverAt(now, hour);
+        Assertions.assertTrue(rolloverAt > now && rolloverAt - now <= hour);
+        //按本地时间对齐到整点
+        Assertions.assertEquals(0, (rolloverAt + TimeZone.getDefault().getOffset(now)) % hour);
+        Assertions.assertEquals(Long.MAX_VALUE, FileLogger.getRolloverAt(now, 0));
+    }
+
+    @Test
+    public void testUniqueLogFile() throws IOException {
+        File file = new File(tempDir, "2024-01-01 10:00.log");
+        Assertions.assertEquals(file, FileLogger.uniqueLogFile(file));
+
+        Assertions.assertTrue(file.createNewFile());
+        Assertions.assertEquals("2024-01-01 10:00-1.log", FileLogger.uniqueLogFile(file).getName());
+        //已经压缩的文件名同样不能再用
+        Assertions.assertTrue(new File(tempDir, "2024-01-01 10:00-1.log.gz").createNewFile());
+        Assertions.assertEquals("2024-01-01 10:00-2.log", FileLogger.uniqueLogFile(file).getName());
+    }
+
+    @Test
+    public void testFileLoggerRolling() throws IOException {
+        FileLogger logger = new FileLogger(tempDir, 1024, 0).maxFileSize(2000);
+        String message = "按字节数滚动的日志文件，每个汉字占三个字节";
+        for (int i = 0; i < 100; i++) {
+            logger.info("ROLLING", message + i);
+        }
+        logger.close();
+
+        File[] files = new File(tempDir, "ROLLING").listFiles();
+        Assertions.assertNotNull(files);
+        Assertions.assertTrue(files.length > 1);
+        int lines = 0;
+        for (File file : files) {
+            //判断滚动发生在写入之前，一个文件最多超出一条日志
+            Assertions.assertTrue(file.length() < 2000 + 200, file.getName() + " " + file.length());
+            String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            lines += content.split("\r\n").length;
+        }
+        Assertions.assertEquals(100, lines);
+        Assertions.assertEquals(0, logger.getErrorCount());
+    }
+
+    @Test
+    public void testArchiverCompress() throws IOException {
+        File file = new File(tempDir, "old.log");
+        byte[] content = "压缩后删除原文件\r\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(file.toPath(), content);
+        Assertions.assertTrue(file.setLastModified(1_600_000_000_000L));
+
+        LogArchiver.compress(file);
+        File gzip = new File(tempDir, "old.log" + LogArchiver.GZIP_SUFFIX);
+        waitFor(() -> !file.exists() && gzip.exists());
+
+        try (InputStream in = new GZIPInputStream(new FileInputStream(gzip))) {
+            Assertions.assertArrayEquals(content, in.readAllBytes());
+        }
+        Assertions.assertEquals(1_600_000_000_000L, gzip.lastModified());
+    }
+
+    @Test
+    public void testArchiverCleanUp() throws IOException {
+        File tagDir = new File(tempDir, "TAG");
+        Assertions.assertTrue(tagDir.mkdirs());
+        long now = System.currentTimeMillis();
+        File expired = createLog(tagDir, "expired.log", now - 7_200_000L);
+        File oldest = createLog(tagDir, "1.log", now - 3000);
+        File older = createLog(tagDir, "2.log.gz", now - 2000);
+        File newest = createLog(tagDir, "3.log", now - 1000);
+        File active = createLog(tagDir, "active.log", now - 10_000);
+        File other = createLog(tagDir, "other.txt", now - 7_200_000L);
+
+        //超过1小时的文件先删除，剩下400字节超过250，从最旧的文件开始删除，正在写入的文件保留
+        LogArchiver.cleanUp(tempDir, 250, 3_600_000L, Collections.singletonList(active));
+        waitFor(() -> !expired.exists() && !oldest.exists() && !older.exists());
+
+        Assertions.assertTrue(newest.exists());
+        Assertions.assertTrue(active.exists());
+        Assertions.assertTrue(other.exists());
+    }
+
+    private static File createLog(File dir, String name, long lastModified) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), new byte[100]);
+        Assertions.assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    /**
+     * 等待后台归档线程完成
+     */
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "archiver timed out");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Test
+    public void testFileLoggerBlock() throws Exception {
+        FileLogger logger = new FileLogger(tempDir, 1024, 0);
+        writeBlocks(logger);
+        logger.close();
+        assertBlocks(readLogs(new File(tempDir, "BLOCK")));
+    }
+
+    @Test
+    public void testMappedFileLoggerBlock() throws Exception {
+        MappedFileLogger logger = new MappedFileLogger(tempDir, 4096);
+        writeBlocks(logger);
+        logger.close();
+        assertBlocks(readLogs(new File(tempDir, "BLOCK")));
+    }
+
+    @Test
+    public void testConsoleLoggerBlock() {
+        List<String> messages = new ArrayList<>();
+        ConsoleLogger logger = new ConsoleLogger() {
+            @Override
+            public void warn(String tag, String message) {
+                messages.add(message);
+            }
+        };
+        logger.logBlock(LogLevel.WARN, "BLOCK", newBlock("a", "b", "c"));
+        logger.logBlock(LogLevel.WARN, "BLOCK", newBlock("single"));
+
+        //多行日志块作为一条消息输出，另起一行开始
+        Assertions.assertEquals(Arrays.asList("\na\nb\nc", "single"), messages);
+    }
+
+    @Test
+    public void testStdoutLoggerBuffer() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StdoutLogger logger = new StdoutLogger(out, 1024, 0);
+
+        //普通日志留在缓冲区中，刷新时才写出
+        logger.info("STDOUT", "buffered");
+        Assertions.assertEquals(0, out.size());
+        logger.flush();
+        Assertions.assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("I/STDOUT: buffered\n"));
+
+        //错误日志立即写出
+        out.reset();
+        logger.error("STDOUT", "failed");
+        Assertions.assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("E/STDOUT: failed\n"));
+
+        //缓冲区写满时先写出已有内容，日志的顺序和内容不变
+        out.reset();
+        for (int i = 0; i < 100; i++) {
+            logger.info("STDOUT", "标准输出 " + i);
+        }
+        Assertions.assertTrue(out.size() > 0);
+        logger.close();
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(100, lines.length);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(lines[i].endsWith("I/STDOUT: 标准输出 " + i));
+        }
+        Assertions.assertEquals(0, logger.getErrorCount());
+    }
+
+    @Test
+    public void testBinaryLoggerArgs() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFileLogger logger = new BinaryFileLogger(new File(tempDir, "args.rclog"), out, 1024, 0);
+        long now = System.currentTimeMillis();
+        logger.write(LogLevel.INFO, "BIN", "worker-1", now, "%x %x %d", false,
+                new Object[]{(byte) -1, (short) -1, 5}, null);
+        logger.write(LogLevel.INFO, "BIN", "worker-2", now, "%x %x %d", false,
+                new Object[]{(byte) 1, (short) 2, 3}, null);
+        logger.close();
+
+        String[] lines = decode(out).split("\r\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertTrue(lines[0].endsWith(": I/BIN[worker-1]: ff ffff 5"));
+        Assertions.assertTrue(lines[1].endsWith(": I/BIN[worker-2]: 1 2 3"));
+        //不同线程使用同一个Tag的字典记录
+        Assertions.assertEquals(1, countOf(out.toByteArray(), "BIN".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(0, logger.getErrorCount());
+    }
+
+    @Test
+    public void testBinaryLoggerScheduledFlush() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFileLogger logger = new BinaryFileLogger(new File(tempDir, "scheduled.rclog"), out, 1024, 20);
+        int headerSize = out.size();
+        //INFO日志不会立即写入文件，由定时刷新写入
+        logger.write(LogLevel.INFO, "BIN", null, System.currentTimeMillis(), "quiet %d", false, new Object[]{1}, null);
+        waitFor(() -> out.size() > headerSize);
+        logger.close();
+
+        String[] lines = decode(out).split("\r\n");
+        Assertions.assertEquals(1, lines.length);
+        Assertions.assertTrue(lines[0].endsWith(": I/BIN: quiet 1"));
+    }
+
+    @Test
+    public void testBinaryLoggerWriteFailure() throws IOException {
+        FailingOutputStream out = new FailingOutputStream();
+        BinaryFileLogger logger = new BinaryFileLogger(new File(tempDir, "failure.rclog"), out, 1024, 0);
+        long start = System.currentTimeMillis();
+        logger.write(LogLevel.INFO, "BIN", null, start, "lost %d", false, new Object[]{1}, null);
+
+        //写入失败时丢弃缓冲区中的记录，包括其中的字典记录
+        out.failing = true;
+        logger.write(LogLevel.ERROR, "BIN", null, start + 1000, "lost %d", false, new Object[]{2}, null);
+        Assertions.assertEquals(1, logger.getErrorCount());
+
+        out.failing = false;
+        logger.write(LogLevel.INFO, "BIN", null, start + 2000, "kept %d", false, new Object[]{3}, null);
+        //超过缓冲区的记录写到一半时写入失败，整条记录被丢弃
+        out.failing = true;
+        logger.write(LogLevel.INFO, "BIN", null, start + 3000, "lost %d", false, new Object[]{4},
+                Collections.singletonList(String.join("", Collections.nCopies(3000, "x"))));
+        Assertions.assertEquals(2, logger.getErrorCount());
+
+        out.failing = false;
+        logger.write(LogLevel.INFO, "BIN", null, start + 4000, "kept %d", false, new Object[]{5}, null);
+        logger.close();
+
+        String text = decode(out.written);
+        String[] lines = text.split("\r\n");
+        Assertions.assertEquals(1, lines.length, text);
+        Assertions.assertTrue(lines[0].endsWith(": I/BIN: kept 5"));
+        //时间差从文件中最后一条记录算起
+        String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(start + 4000));
+        Assertions.assertTrue(lines[0].startsWith(time));
+    }
+
+    private static String decode(ByteArrayOutputStream out) throws IOException {
+        StringBuilder text = new StringBuilder();
+        BinaryLogDecoder.decode(new ByteArrayInputStream(out.toByteArray()), text);
+        return text.toString();
+    }
+
+    private static int countOf(byte[] bytes, byte[] value) {
+        int count = 0;
+        for (int i = 0; i + value.length <= bytes.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + value.length), value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * failing为true时写入失败，已经写入的内容保留
+     */
+    @Test
+    public void testNdjsonLoggerWriteFailure() {
+        FailingOutputStream out = new FailingOutputStream();
+        NdjsonLogger logger = new NdjsonLogger(out, 1024, 0);
+        logger.info("JSON", "first");
+        //写出之前的日志失败时，正在编码的日志整条丢弃
+        out.failing = true;
+        logger.info("JSON", String.join("", Collections.nCopies(3000, "a")));
+        Assertions.assertEquals(1, logger.getErrorCount());
+
+        //超过缓冲区的日志扩大缓冲区后整条写出，不会先写出半条
+        out.failing = false;
+        logger.info("JSON", "second");
+        logger.info("JSON", String.join("", Collections.nCopies(3000, "b")));
+        Assertions.assertEquals(-1, new String(out.written.toByteArray(), StandardCharsets.UTF_8).indexOf('b'));
+
+        out.failing = true;
+        logger.error("JSON", "lost");
+        Assertions.assertEquals(2, logger.getErrorCount());
+        out.failing = false;
+        logger.info("JSON", "kept");
+        logger.close();
+
+        String[] lines = new String(out.written.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(2, lines.length);
+        for (String line : lines) {
+            Assertions.assertTrue(line.startsWith("{\"timestamp\":") && line.endsWith("}"), line);
+        }
+        Assertions.assertTrue(lines[0].endsWith("\"message\":\"second\"}"));
+        Assertions.assertTrue(lines[1].endsWith("\"message\":\"kept\"}"));
+    }
+
+    private static final class FailingOutputStream extends OutputStream {
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        boolean failing;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (failing) {
+                throw new IOException("disk full");
+            }
+            written.write(b, off, len);
+        }
+    }
+
+    /**
+     * 4个线程同时写入3行的日志块
+     */
+    private static void writeBlocks(LoggerInterface logger) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    String id = thread + "-" + i;
+                    logger.logBlock(LogLevel.WARN, "BLOCK", newBlock("╔ " + id, "║ " + id, "╚ " + id));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * 每个日志块的3行连续写入，不与其它线程的日志交错
+     */
+    private static void assertBlocks(String content) {
+        String[] lines = content.split("\r\n");
+        Assertions.assertEquals(4 * 50 * 3, lines.length);
+        for (int i = 0; i < lines.length; i += 3) {
+            String id = lines[i].substring(lines[i].indexOf("╔ ") + 2);
+            Assertions.assertTrue(lines[i].endsWith("W/BLOCK: ╔ " + id));
+            Assertions.assertTrue(lines[i + 1].endsWith("W/BLOCK: ║ " + id));
+            Assertions.assertTrue(lines[i + 2].endsWith("W/BLOCK: ╚ " + id));
+        }
+    }
+
+    private static LogBlock newBlock(String... lines) {
+        LogBlock block = new LogBlock();
+        for (String line : lines) {
+            block.newLine().append(line);
+        }
+        return block;
+    }
+
+    /**
+     * 按文件名顺序读取一个Tag目录下的所有日志文件
+     */
+    static String readLogs(File tagDir) throws IOException {
+        File[] files = tagDir.listFiles();
+        Assertions.assertNotNull(files);
+        Arrays.sort(files);
+        List<String> contents = new ArrayList<>();
+        for (File file : files) {
+            contents.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+        return String.join("", contents);
+    }
+}